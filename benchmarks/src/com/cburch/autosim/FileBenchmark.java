@@ -0,0 +1,60 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Reading an automaton file through GroupedReader, and writing one
+// through Automaton.print, in memory.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileBenchmark {
+    @Param({ "10", "1000", "100000" })
+    public int states;
+
+    private Automaton automaton;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        automaton = new Generator(1).createNFA(states);
+        text = print();
+    }
+
+    @Benchmark
+    public Automaton read() throws IOException {
+        GroupedReader fin = new GroupedReader(new StringReader(text));
+        Automaton ret = Automaton.read(fin);
+        fin.close();
+        return ret;
+    }
+
+    @Benchmark
+    public String print() {
+        StringWriter out = new StringWriter();
+        GroupedWriter fout = new GroupedWriter(out);
+        automaton.print(fout);
+        fout.close();
+        return out.toString();
+    }
+}
@@ -0,0 +1,60 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The NFA step taken for each symbol typed in the interface, reported
+// per symbol.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateSetBenchmark {
+    private static final int INPUT_LENGTH = 64;
+
+    @Param({ "10", "1000", "100000" })
+    public int states;
+
+    @Param({ "0.25" })
+    public double epsilonDensity;
+
+    private StateSet start;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Generator generator = new Generator(1);
+        generator.setEpsilonDensity(epsilonDensity);
+        NFA automaton = generator.createNFA(states);
+        start = automaton.getInitialStates();
+        automaton.addEpsilonClosure(start);
+        input = generator.createInput(INPUT_LENGTH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_LENGTH)
+    public StateSet advance() {
+        StateSet current = start;
+        for(int i = 0; i < input.length(); i++) {
+            current = (StateSet) current.advance(input.charAt(i))[0];
+        }
+        return current;
+    }
+}
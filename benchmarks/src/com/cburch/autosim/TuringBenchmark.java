@@ -0,0 +1,51 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Headless Turing machine runs, which step the compiled table as
+// TuringMachine.advance() steps the diagram; reported per step.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TuringBenchmark {
+    private static final int STEPS = 1 << 20;
+
+    @Param({ "10", "1000", "100000" })
+    public int states;
+
+    private Simulation simulation;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Generator generator = new Generator(1);
+        simulation = generator.createTuringMachine(states).createSimulation();
+        simulation.setStepBudget(STEPS);
+        input = generator.createInput(64);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public SimulationResult run() {
+        return simulation.run(input);
+    }
+}
@@ -3,13 +3,27 @@
 
 package com.cburch.autosim;
 
+import java.util.Arrays;
+
+// An ordered set of symbols, any of the 64K chars. Each symbol's index is
+// its position in the order, found through a page table on the char's
+// high byte, so includes() and indexOf() take constant time however
+// large the alphabet; compiled tables use the index as their column.
 class Alphabet {
     public static final char EPSILON = '\u0190';
     public static final char ELSE    = '*';
     public static final char BLANK   = '_';
     public static final String alphabet = "abcdefghijklmnopqrstuvwxyz";
 
-    private String data = "";
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int[] EMPTY_PAGE = new int[PAGE_SIZE];
+        // shared by every high byte with no symbols; never written
+
+    private char[] symbols = new char[32];   // index -> symbol
+    private int size = 0;
+    private int[][] pages = new int[1 << (16 - PAGE_BITS)][];
+        // symbol -> index + 1, or 0 if absent
 
     public static String toString(char what) {
         switch(what) {
@@ -24,25 +38,59 @@ class Alphabet {
     }
 
     public void set(String what) {
-        data = "";
+        Arrays.fill(pages, EMPTY_PAGE);
+        size = 0;
         for(int i = 0; i < what.length(); i++) {
             add(what.charAt(i));
         }
     }
     public String toString() {
-        return data;
+        return new String(symbols, 0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+    public char charAt(int index) {
+        return symbols[index];
+    }
+    // Returns the symbol's position in the alphabet, or -1 if absent.
+    public int indexOf(char what) {
+        return pages[what >>> PAGE_BITS][what & (PAGE_SIZE - 1)] - 1;
+    }
+    public boolean includes(char what) {
+        return indexOf(what) >= 0;
     }
+
     public void add(char what) {
-        if(data.indexOf(what) < 0) data = data + what;
+        if(includes(what)) return;
+        if(size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, 2 * size);
+        }
+        symbols[size] = what;
+        ++size;
+        setIndex(what, size);
+    }
+    // Adds every char from first through last, such as a range of bytes.
+    public void addRange(char first, char last) {
+        for(int c = first; c <= last; c++) add((char) c);
     }
     public void remove(char what) {
-        int i = data.indexOf(what);
-        if(i >= 0) {
-            data = data.substring(0, i)
-                + data.substring(i + 1);
-        }
+        int i = indexOf(what);
+        if(i < 0) return;
+        setIndex(what, 0);
+        --size;
+        System.arraycopy(symbols, i + 1, symbols, i, size - i);
+        for(; i < size; i++) setIndex(symbols[i], i + 1);
     }
-    public boolean includes(char what) {
-        return data.indexOf(what) >= 0;
+
+    private void setIndex(char what, int value) {
+        int[] page = pages[what >>> PAGE_BITS];
+        if(page == EMPTY_PAGE) {
+            if(value == 0) return;
+            page = new int[PAGE_SIZE];
+            pages[what >>> PAGE_BITS] = page;
+        }
+        page[what & (PAGE_SIZE - 1)] = value;
     }
 }
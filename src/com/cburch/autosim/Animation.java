@@ -3,10 +3,23 @@
 
 package com.cburch.autosim;
 
-abstract class Animation extends Thread {
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+// An animation is stepped once per frame until step() returns false.
+// All running animations share one Swing timer, so every frame runs on
+// the event thread and the regions the animations expose during it are
+// repainted together.
+abstract class Animation {
     private static final int FRAME_RATE = 30;
     private static final Animation EMPTY_INSTANCE = new Empty();
-    
+
+    private static ArrayList<Animation> running = new ArrayList<Animation>();
+    private static Timer timer = null;
+
     private static class Merge extends Animation {
         private Animation first;
         private Animation second;
@@ -31,16 +44,41 @@ abstract class Animation extends Thread {
         public boolean step(int frames) { return false; }
     }
 
+    private static class Ticker implements ActionListener {
+        public void actionPerformed(ActionEvent evt) {
+            Animation[] anims = running.toArray(new Animation[running.size()]);
+            for(int i = 0; i < anims.length; i++) {
+                Animation anim = anims[i];
+                if(!anim.step(anim.frames++)) {
+                    anim.is_done = true;
+                    running.remove(anim);
+                }
+            }
+            if(running.isEmpty()) timer.stop();
+        }
+    }
+
+    private int frames = 0;
+    private boolean is_started = false;
     private boolean is_done = false;
 
     public abstract boolean step(int frames);
 
-    public void run() {
-        FrameRate rate = new FrameRate(FRAME_RATE);
-        for(int frames = 0; step(frames); frames++) {
-            rate.nextFrame();
+    public void start() {
+        if(!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() { start(); }
+            });
+            return;
+        }
+        if(is_started) return;
+        is_started = true;
+        running.add(this);
+        if(timer == null) {
+            timer = new Timer(1000 / FRAME_RATE, new Ticker());
+            timer.setInitialDelay(0);
         }
-        is_done = true;
+        if(!timer.isRunning()) timer.start();
     }
 
     public boolean isDone() { return is_done; }
@@ -7,6 +7,8 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -33,7 +35,7 @@ abstract class Automaton {
             }
 
             // transition to new state
-            history.add(new MySnapshot());
+            history.add(getCurrent(), tape.getCursorPosition(), tape);
             Object[] data = getCurrent().advance(what);
             Animation anim = setCurrent((StateSet) data[0], (LinkedList) data[1]);
 
@@ -47,24 +49,11 @@ abstract class Automaton {
         }
     }
 
-    private class MySnapshot implements Snapshot {
-        private StateSet current;
-
-        public MySnapshot() {
-            this.current = getCurrent();
-        }
-        public void restore() {
-            setCurrent(this.current);
-            int pos = canvas.getTape().getCursorPosition() - 1;
-            canvas.getTape().setCursorPosition(pos);
-            canvas.getTape().setHeadPositionAnimate(pos).start();
-            canvas.getTape().write(pos, Alphabet.BLANK);
-        }
-    }
-
     private TapeListener tape_listener;
 
     private LinkedList<State> states = new LinkedList<State>();
+    private ArrayList<State> state_ids = new ArrayList<State>();
+        // indexed by State.getId(); removed states leave null behind
     protected LinkedList<Transition> transitions = new LinkedList<Transition>();
     private LinkedList<AutomatonComponent> components = new LinkedList<AutomatonComponent>();
     private Alphabet alphabet = new Alphabet(Alphabet.alphabet + Alphabet.ELSE);
@@ -73,9 +62,12 @@ abstract class Automaton {
     private StateSet current_draw = current;
     private Canvas canvas = null;
     private Rectangle bounding = null;
+    private SpatialIndex index = null; // built at the first hit test
+    private int transitions_version = 0;
+        // bumped whenever a transition or its symbols change
 
-    private LinkedList<Snapshot> history = new LinkedList<Snapshot>();
-        // for storing StateSets previously stepped through
+    private StepHistory history = createHistory();
+        // for undoing the steps previously taken
 
     public Automaton() {
         tape_listener = new MyTapeListener();
@@ -87,16 +79,56 @@ abstract class Automaton {
     public abstract State createState();
     public abstract Transition createTransition(State src, State dst);
 
+    //
+    // HISTORY METHODS
+    //
+    // Creates the history, which records the tape cell at the cursor.
+    protected StepHistory createHistory() {
+        return new StepHistory(this, 0, 1);
+    }
+    // Undoes the newest step in the history, which the caller then
+    // removes.
+    protected void restoreStep(StepHistory history) {
+        setCurrent(history.getLastStates());
+        int pos = history.getLastPosition();
+        Tape tape = canvas.getTape();
+        tape.setCursorPosition(pos);
+        tape.setHeadPositionAnimate(pos).start();
+        history.restoreLastCells(tape);
+    }
+    // Undoes steps until the given one is the next to be taken, if the
+    // history still holds them all; returns whether it did. Only the
+    // last step undone restores the states and position, since it
+    // overrides the others.
+    protected boolean undoTo(long target) {
+        if(history.getStep() - target > history.size()) return false;
+        if(history.getStep() == target) return true;
+        Tape tape = canvas.getTape();
+        while(history.getStep() > target + 1) {
+            history.restoreLastCells(tape);
+            history.removeLast();
+        }
+        restoreStep(history);
+        history.removeLast();
+        return true;
+    }
+
     //
     // ACCESS METHODS
     //
     public Alphabet getAlphabet() { return alphabet; }
     public Canvas getCanvas() { return canvas; }
-    public List<Snapshot> getHistory() { return history; }
+    public StepHistory getHistory() { return history; }
 
     public Iterator<State> getStates() {
         return states.iterator();
     }
+    public State getState(int id) {
+        return state_ids.get(id);
+    }
+    public int getStateIdCount() {
+        return state_ids.size();
+    }
     public StateSet getInitialStates() {
         StateSet ret = new StateSet(this);
         for(State state : states) {
@@ -107,6 +139,8 @@ abstract class Automaton {
     public Iterator<Transition> getTransitions() {
         return transitions.iterator();
     }
+    public int getTransitionsVersion() { return transitions_version; }
+    public void invalidateTransitions() { ++transitions_version; }
     public Iterator<AutomatonComponent> getComponents() {
         return components.iterator();
     }
@@ -132,27 +166,37 @@ abstract class Automaton {
     }
 
     public void exposeConnections(Graphics g, State what) {
-    	for(Transition transition : transitions) {
-            if(transition.getSource() == what
-                    || transition.getDest() == what) {
-                transition.expose(g);
-            }
+        for(Transition transition : getConnections(what)) {
+            transition.expose(g);
         }
     }
+    // Returns the transitions into or out of the state, each once.
+    private List<Transition> getConnections(State what) {
+        List<Transition> ret = new ArrayList<Transition>(what.getOutgoing());
+        for(Transition transition : what.getIncoming()) {
+            if(transition.getSource() != what) ret.add(transition);
+        }
+        return ret;
+    }
 
     public AutomatonComponent addComponent(AutomatonComponent what) {
         components.add(what);
+        if(index != null) index.add(what, SpatialIndex.LABELS);
         invalidateBounds();
         return what;
     }
     public void removeComponent(AutomatonComponent what) {
         components.remove(what);
+        if(index != null) index.remove(what);
     }
 
     public State addState() {
         State q = createState();
         if(q != null) {
+            q.setId(state_ids.size());
+            state_ids.add(q);
             states.add(q);
+            if(index != null) index.add(q, SpatialIndex.STATES);
             invalidateBounds();
         }
         return q;
@@ -161,32 +205,42 @@ abstract class Automaton {
         current.remove(what);
         current_draw.remove(what);
         states.remove(what);
+        state_ids.set(what.getId(), null);
+        if(index != null) index.remove(what);
 
         Graphics g = null;
         if(canvas != null) g = canvas.getGraphics();
 
-        LinkedList<Transition> to_remove = new LinkedList<Transition>();
-        for(Transition transition : transitions ) {
-            if(transition.getSource() == what || transition.getDest() == what) {
-                to_remove.add(transition);
-            }
-        }
-        for(Transition transition : to_remove ) {
+        HashSet<Transition> to_remove
+            = new HashSet<Transition>(getConnections(what));
+        for(Transition transition : to_remove) {
             if(g != null) transition.expose(g);
-            transitions.remove(transition);
+            transition.getSource().getOutgoing().remove(transition);
+            transition.getDest().getIncoming().remove(transition);
+            if(index != null) index.remove(transition);
         }
+        transitions.removeAll(to_remove);
+        invalidateTransitions();
     }
 
     public Transition addTransition(State src, State dst) {
         Transition delta = createTransition(src, dst);
         if(delta != null) {
             transitions.add(delta);
+            src.getOutgoing().add(delta);
+            dst.getIncoming().add(delta);
+            if(index != null) index.add(delta, SpatialIndex.TRANSITIONS);
             invalidateBounds();
+            invalidateTransitions();
         }
         return delta;
     }
     public void removeTransition(Transition what) {
         transitions.remove(what);
+        what.getSource().getOutgoing().remove(what);
+        what.getDest().getIncoming().remove(what);
+        if(index != null) index.remove(what);
+        invalidateTransitions();
     }
 
     public void remove(AutomatonComponent comp) {
@@ -227,12 +281,33 @@ abstract class Automaton {
     public void doPause() { }
     public void doStep() { }
     public void doBackStep() {
-        if(history.size() > 0) {
-            ((Snapshot) history.removeLast()).restore();
+        if(!history.isEmpty()) {
+            restoreStep(history);
+            history.removeLast();
         }
     }
+    public void doJumpTo(long step) { }
     public void doResetSimulation() { }
 
+    // Adds to the set every state reachable from it through EPSILON
+    // transitions.
+    public void addEpsilonClosure(StateSet set) {
+        ArrayList<State> pending = new ArrayList<State>();
+        for(Iterator<State> it = set.iterator(); it.hasNext(); ) {
+            pending.add(it.next());
+        }
+        while(!pending.isEmpty()) {
+            State state = pending.remove(pending.size() - 1);
+            for(Transition transition : state.getOutgoing()) {
+                if(transition.transitsOn(Alphabet.EPSILON)
+                        && !set.contains(transition.getDest())) {
+                    set.add(transition.getDest());
+                    pending.add(transition.getDest());
+                }
+            }
+        }
+    }
+
     public StateSet getCurrent() {
         return current;
     }
@@ -256,17 +331,17 @@ abstract class Automaton {
         current_draw = new StateSet(this);
 
         Graphics g = canvas.getGraphics();
-        Animation ret = new AnimationThread(g, traversed);
+        Animation ret = new CursorAnimation(g, traversed);
         current_draw.expose(g);
         old_draw.expose(g);
         return ret;
     }
-    private class AnimationThread extends Animation {
+    private class CursorAnimation extends Animation {
         private Graphics g;
         private LinkedList<Transition> traversed;
         private StateSet old;
 
-        public AnimationThread(Graphics g, LinkedList<Transition> traversed) {
+        public CursorAnimation(Graphics g, LinkedList<Transition> traversed) {
             this.g = g;
             this.traversed = traversed;
             this.old = current;
@@ -302,26 +377,65 @@ abstract class Automaton {
         }
     }
 
+    //
+    // HEADLESS SIMULATION METHODS
+    //
+    public Simulation createSimulation() {
+        return new MySimulation();
+    }
+    private class MySimulation extends Simulation {
+        public SimulationResult run(String input) {
+            startRun();
+            StateSet cur = getInitialStates().step(Alphabet.EPSILON);
+            long steps = 0;
+            long check = 0;
+            for(int i = 0; i < input.length() && cur.size() > 0; i++) {
+                if(steps == check) {
+                    int status = checkLimits(steps);
+                    if(status != 0) return new SimulationResult(status, steps);
+                    check = nextCheck(steps);
+                }
+                cur = cur.step(input.charAt(i));
+                ++steps;
+            }
+            return new SimulationResult(cur.containsFinal(), steps);
+        }
+    }
+
     //
     // GUI METHODS
     //
     public AutomatonComponent find(int x, int y, Graphics g) {
-        for(Iterator<AutomatonComponent> it = getAllComponentsReverse(); it.hasNext(); ) {
-            AutomatonComponent comp = (AutomatonComponent) it.next();
-            if(comp.isIn(x, y, g)) return comp;
-        }
-        return null;
+        return getIndex().find(x, y, g, SpatialIndex.ANY);
     }
     public State findState(int x, int y, Graphics g) {
-        for(Iterator<State> it = Iterators.reverse(states); it.hasNext(); ) {
-            State state = (State) it.next();
-            if(state.isIn(x, y, g)) return state;
+        return (State) getIndex().find(x, y, g, SpatialIndex.STATES);
+    }
+    private SpatialIndex getIndex() {
+        if(index == null) {
+            index = new SpatialIndex();
+            for(Transition transition : transitions) {
+                index.add(transition, SpatialIndex.TRANSITIONS);
+            }
+            for(State state : states) index.add(state, SpatialIndex.STATES);
+            for(AutomatonComponent comp : components) {
+                index.add(comp, SpatialIndex.LABELS);
+            }
         }
-        return null;
+        return index;
     }
+    // Draws the components, skipping those whose cached bounds lie
+    // outside the clip.
     public void draw(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        SpatialIndex index = clip == null ? null : getIndex();
         for(Iterator<AutomatonComponent> it = getAllComponents(); it.hasNext(); ) {
-            ((AutomatonComponent) it.next()).draw(g);
+            AutomatonComponent comp = it.next();
+            if(index != null) {
+                Rectangle bounds = index.getBounds(comp, g);
+                if(bounds != null && !bounds.intersects(clip)) continue;
+            }
+            comp.draw(g);
         }
     }
 
@@ -342,6 +456,18 @@ abstract class Automaton {
         return new Rectangle(bounding);
     }
     public void invalidateBounds() { bounding = null; }
+    // Notes that the given component's bounds have changed; moving a
+    // state changes the geometry of its transitions too.
+    public void invalidateBounds(AutomatonComponent what) {
+        bounding = null;
+        if(what instanceof State) {
+            for(Transition transition : getConnections((State) what)) {
+                transition.invalidateGeometry();
+                if(index != null) index.invalidate(transition);
+            }
+        }
+        if(index != null) index.invalidate(what);
+    }
     private void computeBoundingBox(Graphics g) {
         bounding = null;
         Rectangle box = new Rectangle();
@@ -376,15 +502,20 @@ abstract class Automaton {
         fout.print("alphabet ");
         fout.printlnGroup(alphabet.toString());
 
+        // the file numbers states by position, which differs from their
+        // ids once states have been removed
+        int[] index = new int[state_ids.size()];
+        int count = 0;
         for(State state : states) {
+            index[state.getId()] = count++;
             fout.print("state "); fout.beginGroup(); fout.println();
             state.print(fout);
             fout.endGroup(); fout.println();
         }
 
         for(Transition transition : transitions) {
-            int i = states.indexOf(transition.getSource());
-            int j = states.indexOf(transition.getDest());
+            int i = index[transition.getSource().getId()];
+            int j = index[transition.getDest().getId()];
             fout.print("edge " + i + " " + j + " ");
             fout.beginGroup(); fout.println();
             transition.print(fout);
@@ -402,12 +533,12 @@ abstract class Automaton {
     }
     public static Automaton read(GroupedReader fin) throws IOException {
         String what = fin.readLine();
-        if(!what.equals("Automaton Simulator, " + Main.FILE_VERSION_NAME)) {
+        if(what == null || !what.equals("Automaton Simulator, " + Main.FILE_VERSION_NAME)) {
             throw new IOException("unrecognized file version");
         }
 
         Automaton ret;
-        String type = fin.readLine().trim();
+        String type = fin.readKey();
         if(type.equals("dfa")) ret = new DFA();
         else if(type.equals("nfa")) ret = new NFA();
         else if(type.equals("dpda")) ret = new DPDA();
@@ -415,7 +546,7 @@ abstract class Automaton {
         else throw new IOException("unknown automaton type");
         fin.beginGroup();
         while(!fin.atGroupEnd()) {
-            String key = fin.readLine().trim();
+            String key = fin.readKey();
             if(key != null && key.length() > 0) {
                 if(!ret.setKey(key, fin)) {
                     fin.readGroup();
@@ -447,14 +578,15 @@ abstract class Automaton {
             try {
                 tokens.nextToken();
 
+                // states read so far were given ids in file order
                 int src_i = Integer.parseInt(tokens.nextToken());
-                State src = (State) states.get(src_i);
+                State src = getState(src_i);
                 if(src == null) {
                     throw new IOException("source " + src_i + " not defined");
                 }
 
                 int dst_i = Integer.parseInt(tokens.nextToken());
-                State dst = (State) states.get(dst_i);
+                State dst = getState(dst_i);
                 if(dst == null) {
                     throw new IOException("dest " + dst_i + " not defined");
                 }
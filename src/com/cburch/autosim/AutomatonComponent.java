@@ -8,6 +8,7 @@ import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.util.List;
 
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
@@ -45,6 +46,14 @@ abstract class AutomatonComponent {
     public abstract void remove();
     public abstract void draw(Graphics g);
 
+    // Adds rectangles that together cover every point isIn() accepts,
+    // none much larger than the given size. Components whose bounding
+    // box is mostly empty, such as long transitions, override this so
+    // that the SpatialIndex files them only where they are drawn.
+    public void getRegions(List<Rectangle> regions, int size, Graphics g) {
+        regions.add(getBounds(new Rectangle(), g));
+    }
+
     public void expose(Graphics g) {
         Rectangle rect = new Rectangle();
         automaton.getCanvas().expose(getBounds(rect, g));
@@ -66,7 +75,7 @@ abstract class AutomatonComponent {
     }
     public void read(GroupedReader fin) throws IOException {
         while(!fin.atGroupEnd()) {
-            String key = fin.readLine().trim();
+            String key = fin.readKey();
             if(key != null && key.length() > 0) {
                 if(!setKey(key, fin)) {
                     fin.readGroup();
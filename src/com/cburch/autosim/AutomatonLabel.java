@@ -13,6 +13,9 @@ class AutomatonLabel extends AutomatonComponent {
         public int getLabelY(Label which) { return y; }
         public int getLabelHAlign(Label which) { return halign; }
         public int getLabelVAlign(Label which) { return valign; }
+        public void labelChanged(Label which) {
+            getAutomaton().invalidateBounds(AutomatonLabel.this);
+        }
     }
 
     private Label label;
@@ -29,13 +32,14 @@ class AutomatonLabel extends AutomatonComponent {
     public AutomatonLabel move(int x, int y) {
         this.x = x;
         this.y = y;
-        getAutomaton().invalidateBounds();
+        getAutomaton().invalidateBounds(this);
         return this;
     }
 
     public AutomatonLabel setAlignment(int halign, int valign) {
         this.halign = halign;
         this.valign = valign;
+        getAutomaton().invalidateBounds(this);
         return this;
     }
 
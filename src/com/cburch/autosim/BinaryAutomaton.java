@@ -0,0 +1,632 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+// An automaton in the compact binary file format, mapped into memory.
+// Simulations read the mapped buffer directly, so machines far too big
+// to edit can be run without creating any State or Transition objects;
+// toAutomaton() builds the editable form when it is wanted.
+//
+// All numbers are big-endian. The file holds, in order:
+//   header    MAGIC, VERSION, type, symbol count, words per symbol set,
+//             state count, edge count, alphabet length, label bytes
+//   symbols   the symbols in increasing order; bit i of a symbol set
+//             stands for the i'th of them
+//   alphabet  the automaton's alphabet, as characters
+//   states    flags, x, y for each state
+//   out       for each state the index of its first outgoing edge,
+//             and then the edge count; edges are grouped by source,
+//             each group in the automaton's transition order
+//   edges     destination, two characters of type-specific data,
+//             offset angle, a flag byte, and the symbol set
+//   labels    the labels, in the text format, as UTF-8
+// For a DPDA the edge data are the stack top, the pushed symbol and the
+// stack action; for a Turing machine, the output symbol and the head
+// direction.
+class BinaryAutomaton {
+    public static final int MAGIC = 0x4173696d; // "Asim"
+    public static final int VERSION = 1;
+
+    public static final int TYPE_DFA = 0;
+    public static final int TYPE_NFA = 1;
+    public static final int TYPE_DPDA = 2;
+    public static final int TYPE_TURING = 3;
+
+    private static final int HEADER_SIZE = 36;
+    private static final int STATE_SIZE = 12;
+    private static final int STATE_INITIAL = 1;
+    private static final int STATE_FINAL = 2;
+    private static final int EDGE_DEST = 0;
+    private static final int EDGE_DATA1 = 4;
+    private static final int EDGE_DATA2 = 6;
+    private static final int EDGE_OFFSET = 8;
+    private static final int EDGE_FLAG = 16;
+    private static final int EDGE_SYMBOLS = 24;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private ByteBuffer buf;
+    private int type;
+    private char[] symbols;
+    private Alphabet columns; // character -> column, or -1
+    private int words;
+    private int state_count;
+    private int edge_count;
+    private int edge_size;
+    private int alphabet_at;
+    private int alphabet_length;
+    private int states_at;
+    private int out_at;
+    private int edges_at;
+    private int labels_at;
+    private int label_bytes;
+    private int else_col;
+    private int epsilon_col;
+
+    private BinaryAutomaton(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if(buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("not a binary automaton file");
+        }
+        if(buf.getInt(4) != VERSION) {
+            throw new IOException("unsupported binary file version");
+        }
+        type = buf.getInt(8);
+        int symbol_count = buf.getInt(12);
+        words = buf.getInt(16);
+        state_count = buf.getInt(20);
+        edge_count = buf.getInt(24);
+        alphabet_length = buf.getInt(28);
+        label_bytes = buf.getInt(32);
+        if(type < TYPE_DFA || type > TYPE_TURING || symbol_count < 0
+                || words != (symbol_count + 63) / 64 || state_count < 0
+                || edge_count < 0 || alphabet_length < 0 || label_bytes < 0) {
+            throw new IOException("corrupt binary automaton file");
+        }
+
+        // lay out the sections in long, so a corrupt count cannot wrap
+        // around to offsets that happen to match the file's size
+        long edge_bytes = EDGE_SYMBOLS + 8L * words;
+        long alphabet_pos = HEADER_SIZE + 2L * symbol_count;
+        long states_pos = alphabet_pos + 2L * alphabet_length;
+        long out_pos = states_pos + (long) STATE_SIZE * state_count;
+        long edges_pos = out_pos + 4L * (state_count + 1L);
+        long labels_pos = edges_pos + edge_bytes * edge_count;
+        if(labels_pos + label_bytes != buf.capacity()) {
+            throw new IOException("corrupt binary automaton file");
+        }
+        edge_size = (int) edge_bytes;
+        alphabet_at = (int) alphabet_pos;
+        states_at = (int) states_pos;
+        out_at = (int) out_pos;
+        edges_at = (int) edges_pos;
+        labels_at = (int) labels_pos;
+
+        // the simulations follow edges without checking them, so each
+        // state's edges must lie within the edge table and lead to a state
+        int prev = 0;
+        for(int i = 0; i <= state_count; i++) {
+            int k = buf.getInt(out_at + 4 * i);
+            if(k < prev || k > edge_count) {
+                throw new IOException("corrupt binary automaton file");
+            }
+            prev = k;
+        }
+        for(int k = 0; k < edge_count; k++) {
+            int dst = buf.getInt(edges_at + edge_size * k + EDGE_DEST);
+            if(dst < 0 || dst >= state_count) {
+                throw new IOException("corrupt binary automaton file");
+            }
+        }
+
+        symbols = new char[symbol_count];
+        for(int i = 0; i < symbol_count; i++) {
+            symbols[i] = buf.getChar(HEADER_SIZE + 2 * i);
+        }
+        columns = new Alphabet(new String(symbols));
+        else_col = getColumn(Alphabet.ELSE);
+        epsilon_col = getColumn(Alphabet.EPSILON);
+    }
+
+    public static boolean isBinary(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return file.length() >= 4 && in.readInt() == MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    public static BinaryAutomaton open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("binary automaton file too large");
+            }
+            return new BinaryAutomaton(channel.map(FileChannel.MapMode.READ_ONLY,
+                0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    public int getType() { return type; }
+    public int getStateCount() { return state_count; }
+    public int getEdgeCount() { return edge_count; }
+
+    //
+    // WRITING
+    //
+    public static void write(Automaton automaton, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(automaton, out);
+        } finally {
+            out.close();
+        }
+    }
+    public static void write(Automaton automaton, OutputStream stream)
+            throws IOException {
+        int type;
+        if(automaton instanceof TuringMachine) type = TYPE_TURING;
+        else if(automaton instanceof DFA) type = TYPE_DFA;
+        else if(automaton instanceof NFA) type = TYPE_NFA;
+        else if(automaton instanceof DPDA) type = TYPE_DPDA;
+        else throw new IOException("unknown automaton type");
+
+        // symbols: the alphabet along with ELSE and EPSILON, sorted
+        String dict = automaton.getAlphabet().toString();
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        for(int i = 0; i < dict.length(); i++) present[dict.charAt(i)] = true;
+        present[Alphabet.ELSE] = true;
+        present[Alphabet.EPSILON] = true;
+        int symbol_count = 0;
+        for(int c = 0; c < present.length; c++) {
+            if(present[c]) ++symbol_count;
+        }
+        char[] symbols = new char[symbol_count];
+        symbol_count = 0;
+        for(int c = 0; c < present.length; c++) {
+            if(present[c]) symbols[symbol_count++] = (char) c;
+        }
+        int words = (symbol_count + 63) / 64;
+
+        // number the states by position, and group the edges by source
+        int[] index = new int[automaton.getStateIdCount()];
+        int state_count = 0;
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            index[it.next().getId()] = state_count++;
+        }
+        int[] first = new int[state_count + 1];
+        int edge_count = 0;
+        for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
+            ++first[index[it.next().getSource().getId()] + 1];
+            ++edge_count;
+        }
+        for(int i = 0; i < state_count; i++) first[i + 1] += first[i];
+        Transition[] edges = new Transition[edge_count];
+        int[] fill = new int[state_count];
+        for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
+            Transition transition = it.next();
+            int src = index[transition.getSource().getId()];
+            edges[first[src] + fill[src]++] = transition;
+        }
+
+        StringWriter labels = new StringWriter();
+        GroupedWriter fout = new GroupedWriter(labels);
+        for(Iterator<AutomatonComponent> it = automaton.getAllComponents(); it.hasNext(); ) {
+            AutomatonComponent comp = it.next();
+            if(comp instanceof AutomatonLabel) {
+                fout.print("label "); fout.beginGroup(); fout.println();
+                comp.print(fout);
+                fout.endGroup(); fout.println();
+            }
+        }
+        fout.close();
+        byte[] label_bytes = labels.toString().getBytes(UTF8);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(type);
+        out.writeInt(symbol_count);
+        out.writeInt(words);
+        out.writeInt(state_count);
+        out.writeInt(edge_count);
+        out.writeInt(dict.length());
+        out.writeInt(label_bytes.length);
+        out.writeChars(new String(symbols));
+        out.writeChars(dict);
+
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            State state = it.next();
+            int flags = 0;
+            if(state.isInitial()) flags |= STATE_INITIAL;
+            if(state.isFinal()) flags |= STATE_FINAL;
+            out.writeInt(flags);
+            out.writeInt(state.getX());
+            out.writeInt(state.getY());
+        }
+        for(int i = 0; i <= state_count; i++) out.writeInt(first[i]);
+
+        long[] set = new long[words];
+        for(int i = 0; i < edge_count; i++) {
+            Transition transition = edges[i];
+            char data1 = 0;
+            char data2 = 0;
+            int flag = 0;
+            if(transition instanceof TuringMachine.TMTransition) {
+                TuringMachine.TMTransition tm = (TuringMachine.TMTransition) transition;
+                data1 = tm.getOutput();
+                flag = tm.getDirection();
+            } else if(transition instanceof DPDA.DPDATransition) {
+                DPDA.DPDATransition pda = (DPDA.DPDATransition) transition;
+                data1 = pda.getStackTop();
+                data2 = pda.getStackPush();
+                flag = pda.getStackAction();
+            }
+            out.writeInt(index[transition.getDest().getId()]);
+            out.writeChar(data1);
+            out.writeChar(data2);
+            out.writeDouble(transition.getOffsetTheta());
+            out.writeByte(flag);
+            for(int k = 0; k < EDGE_SYMBOLS - EDGE_FLAG - 1; k++) out.writeByte(0);
+
+            for(int k = 0; k < words; k++) set[k] = 0;
+            for(int k = 0; k < symbol_count; k++) {
+                if(transition.transitsOn(symbols[k])) set[k >> 6] |= 1L << k;
+            }
+            for(int k = 0; k < words; k++) out.writeLong(set[k]);
+        }
+        out.write(label_bytes);
+        out.flush();
+    }
+
+    //
+    // READING
+    //
+    // Builds the editable automaton held in the file.
+    public Automaton toAutomaton() throws IOException {
+        Automaton ret;
+        switch(type) {
+        case TYPE_DFA:      ret = new DFA(); break;
+        case TYPE_NFA:      ret = new NFA(); break;
+        case TYPE_DPDA:     ret = new DPDA(); break;
+        default:            ret = new TuringMachine();
+        }
+
+        StringBuffer dict = new StringBuffer();
+        for(int i = 0; i < alphabet_length; i++) {
+            dict.append(buf.getChar(alphabet_at + 2 * i));
+        }
+        ret.getAlphabet().set(dict.toString());
+
+        State[] states = new State[state_count];
+        for(int i = 0; i < state_count; i++) {
+            int at = states_at + STATE_SIZE * i;
+            int flags = buf.getInt(at);
+            states[i] = ret.addState().move(buf.getInt(at + 4), buf.getInt(at + 8));
+            states[i].setInitial((flags & STATE_INITIAL) != 0);
+            states[i].setFinal((flags & STATE_FINAL) != 0);
+        }
+
+        StringBuffer transits = new StringBuffer();
+        for(int src = 0; src < state_count; src++) {
+            int end = getEdgeEnd(src);
+            for(int k = getEdgeStart(src); k < end; k++) {
+                int at = edges_at + edge_size * k;
+                int dst = buf.getInt(at + EDGE_DEST);
+                Transition transition = ret.addTransition(states[src], states[dst]);
+                if(transition == null) continue;
+
+                transits.setLength(0);
+                for(int col = 0; col < symbols.length; col++) {
+                    if(hasSymbol(at, col)) transits.append(symbols[col]);
+                }
+                transition.setTransits(transits.toString());
+                transition.setOffsetTheta(buf.getDouble(at + EDGE_OFFSET));
+                if(transition instanceof TuringMachine.TMTransition) {
+                    TuringMachine.TMTransition tm = (TuringMachine.TMTransition) transition;
+                    tm.setOutput(buf.getChar(at + EDGE_DATA1));
+                    tm.setDirection(buf.get(at + EDGE_FLAG));
+                } else if(transition instanceof DPDA.DPDATransition) {
+                    DPDA.DPDATransition pda = (DPDA.DPDATransition) transition;
+                    pda.setStackBehavior(buf.getChar(at + EDGE_DATA1),
+                        buf.get(at + EDGE_FLAG), buf.getChar(at + EDGE_DATA2));
+                }
+            }
+        }
+
+        if(label_bytes > 0) {
+            ByteBuffer data = buf.duplicate();
+            data.position(labels_at);
+            data.limit(labels_at + label_bytes);
+            GroupedReader fin = new GroupedReader(new StringReader(
+                UTF8.decode(data).toString()));
+            while(!fin.atFileEnd()) {
+                String key = fin.readKey();
+                if(key.length() > 0 && !ret.setKey(key, fin)) fin.readGroup();
+            }
+        }
+        return ret;
+    }
+
+    //
+    // HEADLESS SIMULATION METHODS
+    //
+    public Simulation createSimulation() {
+        switch(type) {
+        case TYPE_DPDA:     return new DPDASimulation();
+        case TYPE_TURING:   return new TuringSimulation();
+        default:            return new FiniteSimulation();
+        }
+    }
+
+    private int getColumn(char c) {
+        return columns.indexOf(c);
+    }
+    private boolean isInitial(int state) {
+        return (buf.getInt(states_at + STATE_SIZE * state) & STATE_INITIAL) != 0;
+    }
+    private boolean isFinal(int state) {
+        return (buf.getInt(states_at + STATE_SIZE * state) & STATE_FINAL) != 0;
+    }
+    private int getEdgeStart(int state) {
+        return buf.getInt(out_at + 4 * state);
+    }
+    private int getEdgeEnd(int state) {
+        return buf.getInt(out_at + 4 * state + 4);
+    }
+    private boolean hasSymbol(int at, int col) {
+        return col >= 0
+            && (buf.getLong(at + EDGE_SYMBOLS + 8 * (col >> 6)) & (1L << col)) != 0;
+    }
+
+    // Tracks the set of current states, as StateSet.step() does for a
+    // DFA or NFA: a state follows its transitions on a character, or its
+    // ELSE transitions if it has none, and then any EPSILON transitions.
+    private class FiniteSimulation extends Simulation {
+        private int[] cur = new int[state_count];
+        private int cur_size;
+        private int[] next = new int[state_count];
+        private int next_size;
+        private int[] mark = new int[state_count];
+        private int stamp = 0;
+
+        public SimulationResult run(String input) {
+            startRun();
+            newSet();
+            for(int i = 0; i < state_count; i++) {
+                if(isInitial(i)) add(i);
+            }
+            close();
+            swap();
+
+            long steps = 0;
+            long check = 0;
+            long work = 0; // states visited, since a step visits them all
+            long work_check = 0;
+            for(int i = 0; i < input.length() && cur_size > 0; i++) {
+                if(steps == check || work >= work_check) {
+                    int status = checkLimits(steps);
+                    if(status != 0) return new SimulationResult(status, steps);
+                    check = nextCheck(steps);
+                    work_check = work + CHECK_INTERVAL;
+                }
+                work += cur_size;
+                step(getColumn(input.charAt(i)));
+                work += cur_size;
+                ++steps;
+            }
+
+            boolean accepted = false;
+            for(int i = 0; i < cur_size && !accepted; i++) {
+                accepted = isFinal(cur[i]);
+            }
+            return new SimulationResult(accepted, steps);
+        }
+
+        private void step(int col) {
+            newSet();
+            for(int i = 0; i < cur_size; i++) {
+                int state = cur[i];
+                int end = getEdgeEnd(state);
+                boolean found = false;
+                for(int k = getEdgeStart(state); k < end; k++) {
+                    int at = edges_at + edge_size * k;
+                    if(hasSymbol(at, col)) {
+                        add(buf.getInt(at + EDGE_DEST));
+                        found = true;
+                    }
+                }
+                if(found) continue;
+                for(int k = getEdgeStart(state); k < end; k++) {
+                    int at = edges_at + edge_size * k;
+                    if(hasSymbol(at, else_col)) add(buf.getInt(at + EDGE_DEST));
+                }
+            }
+            close();
+            swap();
+        }
+        // Adds EPSILON successors of the new set; the set itself serves
+        // as the work list.
+        private void close() {
+            if(epsilon_col < 0) return;
+            for(int i = 0; i < next_size; i++) {
+                int state = next[i];
+                int end = getEdgeEnd(state);
+                for(int k = getEdgeStart(state); k < end; k++) {
+                    int at = edges_at + edge_size * k;
+                    if(hasSymbol(at, epsilon_col)) add(buf.getInt(at + EDGE_DEST));
+                }
+            }
+        }
+        private void newSet() {
+            next_size = 0;
+            if(++stamp == Integer.MAX_VALUE) {
+                for(int i = 0; i < mark.length; i++) mark[i] = 0;
+                stamp = 1;
+            }
+        }
+        private void add(int state) {
+            if(mark[state] != stamp) {
+                mark[state] = stamp;
+                next[next_size++] = state;
+            }
+        }
+        private void swap() {
+            int[] t = cur; cur = next; next = t;
+            cur_size = next_size;
+        }
+    }
+
+    // Mirrors the headless simulation in DPDA, keeping the stack on a
+    // TapeContents.
+    private class DPDASimulation extends Simulation {
+        private TapeContents stack;
+        private int cursor;
+        private long steps;
+        private long check;
+        private int status;
+
+        public SimulationResult run(String input) {
+            startRun();
+            stack = new TapeContents();
+            cursor = 0;
+            steps = 0;
+            check = 0;
+            status = 0;
+
+            int state = -1;
+            for(int i = 0; i < state_count && state < 0; i++) {
+                if(isInitial(i)) state = i;
+            }
+            if(state < 0) return new SimulationResult(false, 0);
+            state = transition(state, Alphabet.EPSILON);
+            for(int i = 0; i < input.length() && state >= 0; i++) {
+                state = transition(state, input.charAt(i));
+            }
+            if(status != 0) return new SimulationResult(status, steps);
+            return new SimulationResult(state >= 0 && isFinal(state), steps);
+        }
+
+        // Returns the state reached, or -1 if the machine rejects.
+        private int transition(int state, char what) {
+            char stack_top = stack.get(cursor);
+            for(; true; what = Alphabet.EPSILON) {
+                int col = getColumn(what);
+                int found = -1;
+                int end = getEdgeEnd(state);
+                for(int k = getEdgeStart(state); k < end && found < 0; k++) {
+                    int at = edges_at + edge_size * k;
+                    char top = buf.getChar(at + EDGE_DATA1);
+                    if((top == Alphabet.ELSE || top == stack_top)
+                            && hasSymbol(at, col)) {
+                        found = at;
+                    }
+                }
+                if(found < 0) {
+                    return what == Alphabet.EPSILON ? state : -1;
+                }
+                if(steps == check) {
+                    status = checkLimits(steps);
+                    if(status != 0) return -1;
+                    check = nextCheck(steps);
+                }
+
+                int action = buf.get(found + EDGE_FLAG);
+                int pos = cursor;
+                if(pos == 0 && stack.get(0) == Alphabet.BLANK) pos = -1;
+                if(action == DPDA.DPDATransition.STACK_POP) {
+                    if(pos >= 0) {
+                        stack.set(pos, Alphabet.BLANK);
+                        if(pos > 0) {
+                            cursor = pos - 1;
+                            stack_top = stack.get(pos - 1);
+                        } else {
+                            stack_top = Alphabet.BLANK;
+                        }
+                    }
+                } else if(action == DPDA.DPDATransition.STACK_PUSH) {
+                    char push = buf.getChar(found + EDGE_DATA2);
+                    if(pos >= 0) cursor = pos + 1;
+                    stack.set(pos + 1, push);
+                    stack_top = push;
+                }
+
+                state = buf.getInt(found + EDGE_DEST);
+                ++steps;
+            }
+        }
+    }
+
+    // Mirrors TuringTable: a transition on the exact symbol takes
+    // priority over an ELSE transition, the last ELSE transition wins as
+    // in TuringMachine.advance(), and the machine accepts if it halts in
+    // a final state.
+    private class TuringSimulation extends Simulation {
+        public SimulationResult run(String input) {
+            startRun();
+            TapeContents tape = new TapeContents();
+            for(int i = 0; i < input.length(); i++) {
+                char c = input.charAt(i);
+                tape.set(i, c == ' ' ? Alphabet.BLANK : c);
+            }
+
+            int state = -1;
+            for(int i = 0; i < state_count && state < 0; i++) {
+                if(isInitial(i)) state = i;
+            }
+            if(state < 0) return new SimulationResult(false, 0);
+
+            int head = 0;
+            long steps = 0;
+            long check = 0;
+            while(true) {
+                char c = tape.get(head);
+                int col = getColumn(c);
+                int found = -1;
+                int end = getEdgeEnd(state);
+                for(int k = getEdgeStart(state); k < end; k++) {
+                    int at = edges_at + edge_size * k;
+                    if(hasSymbol(at, col)) {
+                        found = at;
+                        break;
+                    }
+                    if(hasSymbol(at, else_col)) found = at;
+                }
+                if(found < 0) break;
+                if(steps == check) {
+                    int status = checkLimits(steps);
+                    if(status != 0) return new SimulationResult(status, steps);
+                    check = nextCheck(steps);
+                }
+
+                char w = buf.getChar(found + EDGE_DATA1);
+                if(w != Alphabet.ELSE && w != c) tape.set(head, w);
+                head += buf.get(found + EDGE_FLAG);
+                state = buf.getInt(found + EDGE_DEST);
+                ++steps;
+            }
+            return new SimulationResult(isFinal(state), steps);
+        }
+    }
+}
@@ -34,7 +34,7 @@ class Canvas extends JPanel implements Printable, Scrollable {
     private Tool cur_tool = null;
     private boolean mouseDown = false;
     private Automaton automaton = null;
-    private boolean dirty = false;
+    private Rectangle dirty = null; // region exposed while suppressed
     private boolean suppress_repaint = false;
 
     public Canvas() {
@@ -88,7 +88,6 @@ class Canvas extends JPanel implements Printable, Scrollable {
              RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setRenderingHints(rh);
         
-        dirty = false;
         automaton.draw(g);
         if(cur_tool != null) cur_tool.draw(g);
     }
@@ -97,15 +96,24 @@ class Canvas extends JPanel implements Printable, Scrollable {
     }
     public void setSuppressRepaint(boolean flag) {
         suppress_repaint = flag;
-        if(!flag && dirty) repaint();
+        if(!flag && dirty != null) {
+            Rectangle rect = dirty;
+            dirty = null;
+            expose(rect);
+        }
     }
     public void exposeAll() {
         expose(0, 0, getWidth(), getHeight());
     }
+    // Schedules the given region for repainting; Swing merges the
+    // regions exposed before the repaint occurs. The region is widened
+    // a pixel for antialiasing.
     public void expose(int x, int y, int width, int height) {
-        if(!dirty) {
-            dirty = true;
-            if(!suppress_repaint) repaint(20);
+        if(suppress_repaint) {
+            if(dirty == null) dirty = new Rectangle(x, y, width, height);
+            else dirty.add(new Rectangle(x, y, width, height));
+        } else {
+            repaint(20, x - 1, y - 1, width + 2, height + 2);
         }
     }
     public void expose(Rectangle rect) {
@@ -20,10 +20,8 @@ class DFA extends Automaton {
         public boolean canBeTransit(char what) {
             if(what == Alphabet.EPSILON) return false;
 
-            for(Transition transition : transitions) {
-                if(this != transition
-                        && transition.getSource() == this.getSource()
-                        && transition.transitsOn(what)) {
+            for(Transition transition : getSource().getOutgoing()) {
+                if(this != transition && transition.transitsOn(what)) {
                     return false;
                 }
             }
@@ -31,16 +29,37 @@ class DFA extends Automaton {
         }
     }
 
+    private class MySimulation extends Simulation {
+        private DFATable table = new DFATable(DFA.this);
+
+        public SimulationResult run(String input) {
+            startRun();
+            int state = table.getInitial();
+            long steps = 0;
+            long check = 0;
+            for(int i = 0; i < input.length() && state != DFATable.DEAD; i++) {
+                if(steps == check) {
+                    int status = checkLimits(steps);
+                    if(status != 0) return new SimulationResult(status, steps);
+                    check = nextCheck(steps);
+                }
+                state = table.step(state, input.charAt(i));
+                ++steps;
+            }
+            return new SimulationResult(table.isAccepting(state), steps);
+        }
+    }
+
     public State createState() {
         return new DFA.DFAState();
     }
     public Transition createTransition(State src, State dst) {
-        for(Transition transition : transitions) {
-            if(transition.getSource() == src
-                    && transition.getDest() == dst) {
-                return null;
-            }
+        for(Transition transition : src.getOutgoing()) {
+            if(transition.getDest() == dst) return null;
         }
         return new DFA.DFATransition(src, dst);
     }
+    public Simulation createSimulation() {
+        return new MySimulation();
+    }
 }
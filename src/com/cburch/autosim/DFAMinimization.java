@@ -0,0 +1,239 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+// Minimizes a compiled DFA by Hopcroft's partition refinement, in
+// O(n k log n) time for n states and k columns. DEAD is treated as an
+// extra non-accepting sink state, and states found equivalent to it are
+// dropped from the result. Because the column for characters outside
+// the alphabet is refined like any other, ELSE behaviour is preserved.
+class DFAMinimization {
+    private int n;           // states, including the sink at index n - 1
+    private int width;
+    private int[] pred_start; // (column * n + state) -> start in pred
+    private int[] pred;       // predecessors, grouped by column and target
+
+    // the partition: elems[start[b] .. end[b]) are the members of block b
+    private int[] elems;
+    private int[] loc;        // state -> index in elems
+    private int[] block;      // state -> block
+    private int[] start;
+    private int[] end;
+    private int blocks = 0;
+
+    // pending splitters, as (block, column) pairs
+    private int[] work_block;
+    private int[] work_col;
+    private int work_size = 0;
+    private boolean[] in_work;  // (block * width + column)
+
+    private DFAMinimization() { }
+
+    public static DFA minimize(DFA automaton) {
+        return minimize(new DFATable(automaton)).createAutomaton();
+    }
+
+    public static DFATable minimize(DFATable table) {
+        return new DFAMinimization().run(table);
+    }
+
+    private DFATable run(DFATable table) {
+        width = table.getWidth();
+        int initial = table.getInitialRow();
+        if(initial == DFATable.DEAD) {
+            return new DFATable(table.getSymbols(), new int[0],
+                new boolean[0], DFATable.DEAD);
+        }
+
+        // keep only rows reachable from the initial state
+        int rows = table.getRowCount();
+        int[] renumber = new int[rows];
+        for(int i = 0; i < rows; i++) renumber[i] = -1;
+        int[] reach = new int[rows];
+        int count = 0;
+        reach[count++] = initial;
+        renumber[initial] = 0;
+        for(int i = 0; i < count; i++) {
+            for(int col = 0; col < width; col++) {
+                int dst = table.getNextRow(reach[i], col);
+                if(dst != DFATable.DEAD && renumber[dst] < 0) {
+                    renumber[dst] = count;
+                    reach[count++] = dst;
+                }
+            }
+        }
+
+        // complete the automaton with a sink as state n - 1
+        n = count + 1;
+        int sink = count;
+        int[] delta = new int[n * width];
+        boolean[] accepting = new boolean[n];
+        for(int s = 0; s < count; s++) {
+            accepting[s] = table.isAcceptingRow(reach[s]);
+            for(int col = 0; col < width; col++) {
+                int dst = table.getNextRow(reach[s], col);
+                delta[s * width + col] = dst == DFATable.DEAD ? sink : renumber[dst];
+            }
+        }
+        for(int col = 0; col < width; col++) delta[sink * width + col] = sink;
+
+        buildPredecessors(delta);
+        refine(accepting);
+
+        // number the blocks breadth-first from the initial state's,
+        // leaving out the sink's block
+        int sink_block = block[sink];
+        int[] block_row = new int[blocks];
+        for(int b = 0; b < blocks; b++) block_row[b] = -1;
+        int[] order = new int[blocks];
+        int rows_out = 0;
+        if(block[0] != sink_block) {
+            block_row[block[0]] = rows_out;
+            order[rows_out++] = block[0];
+        }
+        for(int i = 0; i < rows_out; i++) {
+            int rep = elems[start[order[i]]];
+            for(int col = 0; col < width; col++) {
+                int b = block[delta[rep * width + col]];
+                if(b != sink_block && block_row[b] < 0) {
+                    block_row[b] = rows_out;
+                    order[rows_out++] = b;
+                }
+            }
+        }
+
+        int[] next = new int[rows_out * width];
+        boolean[] accepting_out = new boolean[rows_out];
+        for(int row = 0; row < rows_out; row++) {
+            int rep = elems[start[order[row]]];
+            accepting_out[row] = accepting[rep];
+            for(int col = 0; col < width; col++) {
+                int b = block[delta[rep * width + col]];
+                next[row * width + col] = b == sink_block ? DFATable.DEAD : block_row[b];
+            }
+        }
+        return new DFATable(table.getSymbols(), next, accepting_out,
+            rows_out > 0 ? 0 : DFATable.DEAD);
+    }
+
+    private void buildPredecessors(int[] delta) {
+        pred_start = new int[n * width + 1];
+        for(int s = 0; s < n; s++) {
+            for(int col = 0; col < width; col++) {
+                ++pred_start[col * n + delta[s * width + col] + 1];
+            }
+        }
+        for(int i = 1; i < pred_start.length; i++) {
+            pred_start[i] += pred_start[i - 1];
+        }
+        pred = new int[n * width];
+        int[] fill = new int[n * width];
+        System.arraycopy(pred_start, 0, fill, 0, fill.length);
+        for(int s = 0; s < n; s++) {
+            for(int col = 0; col < width; col++) {
+                pred[fill[col * n + delta[s * width + col]]++] = s;
+            }
+        }
+    }
+
+    private void refine(boolean[] accepting) {
+        elems = new int[n];
+        loc = new int[n];
+        block = new int[n];
+        start = new int[n];
+        end = new int[n];
+        in_work = new boolean[n * width];
+        work_block = new int[n * width];
+        work_col = new int[n * width];
+
+        // initial partition: accepting states, then the rest
+        int k = 0;
+        for(int s = 0; s < n; s++) if(accepting[s]) elems[k++] = s;
+        int split = k;
+        for(int s = 0; s < n; s++) if(!accepting[s]) elems[k++] = s;
+        if(split > 0) addBlock(0, split);
+        addBlock(split, n);
+        for(int i = 0; i < n; i++) loc[elems[i]] = i;
+
+        int first = 0;
+        if(blocks == 2 && end[1] - start[1] < end[0] - start[0]) first = 1;
+        for(int col = 0; col < width; col++) push(first, col);
+
+        int[] touched_states = new int[n];
+        boolean[] marked = new boolean[n];
+        int[] marks = new int[n];       // block -> number of marked members
+        int[] touched_blocks = new int[n];
+
+        while(work_size > 0) {
+            --work_size;
+            int splitter = work_block[work_size];
+            int col = work_col[work_size];
+            in_work[splitter * width + col] = false;
+
+            // find states with a transition on col into the splitter
+            int touched = 0;
+            for(int i = start[splitter]; i < end[splitter]; i++) {
+                int t = elems[i];
+                int base = col * n + t;
+                for(int j = pred_start[base]; j < pred_start[base + 1]; j++) {
+                    int s = pred[j];
+                    if(!marked[s]) {
+                        marked[s] = true;
+                        touched_states[touched++] = s;
+                    }
+                }
+            }
+
+            // move marked states to the front of their blocks
+            int nblocks = 0;
+            for(int i = 0; i < touched; i++) {
+                int s = touched_states[i];
+                int b = block[s];
+                if(marks[b] == 0) touched_blocks[nblocks++] = b;
+                int dst = start[b] + marks[b];
+                int other = elems[dst];
+                elems[dst] = s;
+                elems[loc[s]] = other;
+                loc[other] = loc[s];
+                loc[s] = dst;
+                ++marks[b];
+            }
+
+            // split every block that was only partly marked
+            for(int i = 0; i < nblocks; i++) {
+                int b = touched_blocks[i];
+                int m = marks[b];
+                marks[b] = 0;
+                if(m == end[b] - start[b]) continue;
+
+                int nb = addBlock(start[b], start[b] + m);
+                start[b] += m;
+                for(int j = start[nb]; j < end[nb]; j++) block[elems[j]] = nb;
+
+                int smaller = (end[nb] - start[nb]) <= (end[b] - start[b]) ? nb : b;
+                for(int c = 0; c < width; c++) {
+                    if(in_work[b * width + c]) push(nb, c);
+                    else push(smaller, c);
+                }
+            }
+
+            for(int i = 0; i < touched; i++) marked[touched_states[i]] = false;
+        }
+    }
+
+    private int addBlock(int from, int to) {
+        int b = blocks++;
+        start[b] = from;
+        end[b] = to;
+        for(int i = from; i < to; i++) block[elems[i]] = b;
+        return b;
+    }
+    private void push(int b, int col) {
+        if(in_work[b * width + col]) return;
+        in_work[b * width + col] = true;
+        work_block[work_size] = b;
+        work_col[work_size] = col;
+        ++work_size;
+    }
+}
@@ -0,0 +1,228 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A DFA compiled into a dense transition table. Each row is one state and
+// each column one input symbol; the last column stands for every
+// character that is not in the alphabet, so ELSE transitions are
+// resolved here once rather than on every step. Rows are stored
+// pre-multiplied by the row width so that stepping is one array load.
+class DFATable {
+    public static final int DEAD = -1;
+
+    private static final int LAYOUT_SPACING = 100;
+
+    private State[] states;  // null when not compiled from a DFA
+    private boolean[] accepting;
+    private char[] symbols;  // column -> character
+    private Alphabet columns; // character -> column, or -1 for other
+    private int other;       // column for characters outside the alphabet
+    private int width;       // number of columns
+    private int[] table;     // (row * width + column) -> row * width
+    private int initial;     // row * width of initial state, or DEAD
+
+    public DFATable(DFA automaton) {
+        // assign rows to states
+        IdentityHashMap<State,Integer> rows = new IdentityHashMap<State,Integer>();
+        int count = 0;
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            rows.put(it.next(), Integer.valueOf(count++));
+        }
+        State[] states = new State[count];
+        boolean[] accepting = new boolean[count];
+        int initial = DEAD;
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            State state = it.next();
+            int row = rows.get(state).intValue();
+            states[row] = state;
+            accepting[row] = state.isFinal();
+            if(initial == DEAD && state.isInitial()) initial = row;
+        }
+
+        // assign columns to symbols
+        Alphabet dict = automaton.getAlphabet();
+        StringBuffer syms = new StringBuffer();
+        for(int i = 0; i < dict.size(); i++) {
+            char c = dict.charAt(i);
+            if(c != Alphabet.ELSE && c != Alphabet.EPSILON) syms.append(c);
+        }
+        char[] symbols = syms.toString().toCharArray();
+        int width = symbols.length + 1;
+
+        // fill table, resolving ELSE into every column left unset
+        int[] next = new int[count * width];
+        int[] fallback = new int[count];
+        for(int i = 0; i < next.length; i++) next[i] = DEAD;
+        for(int i = 0; i < count; i++) fallback[i] = DEAD;
+        for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
+            Transition transition = it.next();
+            int src = rows.get(transition.getSource()).intValue();
+            int dst = rows.get(transition.getDest()).intValue();
+            if(transition.transitsOn(Alphabet.ELSE)) fallback[src] = dst;
+            for(int col = 0; col < symbols.length; col++) {
+                if(transition.transitsOn(symbols[col])) {
+                    next[src * width + col] = dst;
+                }
+            }
+        }
+        for(int i = 0; i < next.length; i++) {
+            if(next[i] == DEAD) next[i] = fallback[i / width];
+        }
+
+        init(symbols, next, accepting, initial);
+        this.states = states;
+    }
+
+    // Builds a table directly. Row r's successor on column c is
+    // next[r * (symbols.length + 1) + c], given as a row number or DEAD;
+    // the final column of each row is used for characters outside
+    // symbols.
+    public DFATable(char[] symbols, int[] next, boolean[] accepting,
+            int initial) {
+        init(symbols, next, accepting, initial);
+    }
+
+    private void init(char[] symbols, int[] next, boolean[] accepting,
+            int initial) {
+        this.symbols = symbols;
+        this.accepting = accepting;
+        this.width = symbols.length + 1;
+        this.other = symbols.length;
+        this.columns = new Alphabet(new String(symbols));
+
+        table = new int[next.length];
+        for(int i = 0; i < next.length; i++) {
+            table[i] = next[i] == DEAD ? DEAD : next[i] * width;
+        }
+        this.initial = initial == DEAD ? DEAD : initial * width;
+    }
+
+    public int getInitial() { return initial; }
+    public boolean isAccepting(int state) {
+        return state != DEAD && accepting[state / width];
+    }
+    public State getState(int state) {
+        return state == DEAD || states == null ? null : states[state / width];
+    }
+
+    public int step(int state, char c) {
+        int col = columns.indexOf(c);
+        return table[state + (col < 0 ? other : col)];
+    }
+    public int run(int state, CharSequence input) {
+        int[] table = this.table;
+        Alphabet columns = this.columns;
+        int other = this.other;
+        int n = input.length();
+        for(int i = 0; i < n && state != DEAD; i++) {
+            char c = input.charAt(i);
+            int col = columns.indexOf(c);
+            state = table[state + (col < 0 ? other : col)];
+        }
+        return state;
+    }
+    public int run(int state, char[] input, int offset, int length) {
+        int[] table = this.table;
+        Alphabet columns = this.columns;
+        int other = this.other;
+        int end = offset + length;
+        for(int i = offset; i < end && state != DEAD; i++) {
+            char c = input[i];
+            int col = columns.indexOf(c);
+            state = table[state + (col < 0 ? other : col)];
+        }
+        return state;
+    }
+    public boolean accepts(CharSequence input) {
+        if(initial == DEAD) return false;
+        return isAccepting(run(initial, input));
+    }
+
+    //
+    // ROW ACCESS METHODS
+    //
+    // These address states by row number rather than by the
+    // pre-multiplied values used for stepping.
+    public int getRowCount() { return accepting.length; }
+    public int getWidth() { return width; }
+    public int getInitialRow() { return initial == DEAD ? DEAD : initial / width; }
+    public boolean isAcceptingRow(int row) { return accepting[row]; }
+    public int getNextRow(int row, int column) {
+        int ret = table[row * width + column];
+        return ret == DEAD ? DEAD : ret / width;
+    }
+    public char[] getSymbols() { return symbols; }
+
+    // Builds a DFA with one state per row, laid out on a grid. Symbols
+    // going to the same place as the last column are left to the ELSE
+    // transition.
+    public DFA createAutomaton() {
+        DFA ret = new DFA();
+        ret.getAlphabet().set(new String(symbols) + Alphabet.ELSE);
+
+        int rows = getRowCount();
+        int per_line = Math.max(1, (int) Math.ceil(Math.sqrt(rows)));
+        State[] created = new State[rows];
+        for(int row = 0; row < rows; row++) {
+            State state = ret.addState();
+            state.move(LAYOUT_SPACING / 2 + LAYOUT_SPACING * (row % per_line),
+                LAYOUT_SPACING / 2 + LAYOUT_SPACING * (row / per_line));
+            if(row == getInitialRow()) state.setInitial(true);
+            if(accepting[row]) state.setFinal(true);
+            created[row] = state;
+        }
+
+        // A symbol that dies while the row's ELSE column does not has to
+        // be sent somewhere explicit, since leaving it out would let it
+        // fall through to ELSE.
+        State trap = null;
+        LinkedHashMap<Integer,StringBuffer> groups
+            = new LinkedHashMap<Integer,StringBuffer>();
+        for(int src = 0; src < rows; src++) {
+            int fallback = getNextRow(src, other);
+            groups.clear();
+            for(int col = 0; col < symbols.length; col++) {
+                int dst = getNextRow(src, col);
+                if(dst == fallback) continue;
+                if(dst == DEAD) {
+                    if(trap == null) {
+                        trap = ret.addState();
+                        trap.move(LAYOUT_SPACING / 2 + LAYOUT_SPACING * (rows % per_line),
+                            LAYOUT_SPACING / 2 + LAYOUT_SPACING * (rows / per_line));
+                    }
+                    dst = rows;
+                }
+                Integer key = Integer.valueOf(dst);
+                StringBuffer transits = groups.get(key);
+                if(transits == null) {
+                    transits = new StringBuffer();
+                    groups.put(key, transits);
+                }
+                transits.append(symbols[col]);
+            }
+            if(fallback != DEAD) {
+                Integer key = Integer.valueOf(fallback);
+                StringBuffer transits = groups.get(key);
+                if(transits == null) {
+                    transits = new StringBuffer();
+                    groups.put(key, transits);
+                }
+                transits.append(Alphabet.ELSE);
+            }
+
+            for(Map.Entry<Integer,StringBuffer> entry : groups.entrySet()) {
+                int dst = entry.getKey().intValue();
+                State dst_state = dst == rows ? trap : created[dst];
+                ret.addTransition(created[src], dst_state)
+                    .setTransits(entry.getValue().toString());
+            }
+        }
+        return ret;
+    }
+}
@@ -12,10 +12,15 @@ import java.util.LinkedList;
 import javax.swing.ButtonGroup;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JRadioButtonMenuItem;
 
 class DPDA extends Automaton {
+    // Bounds the EPSILON transitions taken for one typed character, so
+    // that a cycle of them cannot hang the interface.
+    private static final int MAX_EPSILON_STEPS = 10000;
+
     private class DPDAState extends State {
         public DPDAState() {
             super(DPDA.this);
@@ -25,7 +30,7 @@ class DPDA extends Automaton {
         }
     }
 
-    private class DPDATransition extends Transition {
+    class DPDATransition extends Transition {
         public static final int STACK_POP = -1;
         public static final int STACK_KEEP = 0;
         public static final int STACK_PUSH = 1;
@@ -81,6 +86,16 @@ class DPDA extends Automaton {
 
         public DPDATransition(State src, State dst) {
             super(DPDA.this, src, dst);
+            setLabelText(); // now that the stack fields are set
+        }
+        public char getStackTop() { return stack_top; }
+        public int getStackAction() { return stack_action; }
+        public char getStackPush() { return stack_push; }
+        public void setStackBehavior(char top, int action, char push) {
+            stack_top = top;
+            stack_action = action;
+            stack_push = push;
+            setLabelText();
         }
         public boolean canBeTransit(char what) {
             if(this.transitsOn(Alphabet.EPSILON)) return false;
@@ -88,10 +103,9 @@ class DPDA extends Automaton {
                 return false;
             }
 
-            for(Iterator it = getTransitions(); it.hasNext(); ) {
-                DPDATransition transition = (DPDATransition) it.next();
-                if(this != transition
-                        && transition.getSource() == this.getSource()) {
+            for(Transition other : getSource().getOutgoing()) {
+                DPDATransition transition = (DPDATransition) other;
+                if(this != transition) {
                     if(transition.stack_top == this.stack_top
                             || transition.stack_top == Alphabet.ELSE
                             || this.stack_top == Alphabet.ELSE) {
@@ -211,40 +225,131 @@ class DPDA extends Automaton {
                 return;
             }
 
-            getHistory().add(new MySnapshot());
+            StepHistory history = getHistory();
+            input.setLength((int) history.getStep());
+            input.append(what);
+            history.add(getCurrent(), tape.getHeadPosition(), tape);
             transition(tape, what);
         }
     }
 
-    private class MySnapshot implements Snapshot {
-        private StateSet current;
-        private int head_pos;
-        private char head_char;
-        private char head_prev;
-        private char head_next;
-
-        public MySnapshot() {
-            current   = getCurrent();
-            Tape tape = getCanvas().getTape();
-            head_pos  = tape.getHeadPosition();
-            head_char = tape.read(head_pos);
-            head_next = tape.read(head_pos + 1);
-            if(head_pos >= 0) head_prev = tape.read(head_pos - 1);
+    // The history records the cells on either side of the head, too.
+    protected StepHistory createHistory() {
+        return new StepHistory(this, -1, 3);
+    }
+    protected void restoreStep(StepHistory history) {
+        setCurrent(history.getLastStates());
+        Tape tape = getCanvas().getTape();
+        int pos = history.getLastPosition();
+        tape.setHeadPosition(pos);
+        tape.setCursorPosition(pos);
+        history.restoreLastCells(tape);
+    }
+
+    // Headless counterpart to transition(): the stack is kept on a
+    // TapeContents exactly as the GUI keeps it on the Tape.
+    private class MySimulation extends Simulation {
+        private TapeContents stack;
+        private int cursor;
+        private long steps;
+        private long check;
+        private int status;
+        private long symbol_limit = Long.MAX_VALUE;
+            // EPSILON transitions allowed for each symbol
+
+        // Continues from a configuration of the animated simulation, with
+        // the same bound on EPSILON transitions; the stack is written to.
+        public void resume(TapeContents stack, int cursor) {
+            startRun();
+            this.stack = stack;
+            this.cursor = cursor;
+            steps = 0;
+            check = 0;
+            status = 0;
+            symbol_limit = MAX_EPSILON_STEPS;
         }
-        public void restore() {
-            setCurrent(current);
-            Tape tape = getCanvas().getTape();
-            tape.setHeadPosition(head_pos);
-            tape.setCursorPosition(head_pos);
-            tape.write(head_pos, head_char);
-            tape.write(head_pos + 1, head_next);
-            if(head_pos >= 0) tape.write(head_pos - 1, head_prev);
+        public TapeContents getStack() { return stack; }
+        public int getCursor() { return cursor; }
+
+        public SimulationResult run(String input) {
+            startRun();
+            stack = new TapeContents();
+            cursor = 0;
+            steps = 0;
+            check = 0;
+            status = 0;
+
+            Iterator<State> statesIter = getInitialStates().iterator();
+            if(!statesIter.hasNext()) return new SimulationResult(false, 0);
+            State state = transition(statesIter.next(), Alphabet.EPSILON);
+            for(int i = 0; i < input.length() && state != null; i++) {
+                state = transition(state, input.charAt(i));
+            }
+            if(status != 0) return new SimulationResult(status, steps);
+            return new SimulationResult(state != null && state.isFinal(),
+                steps);
+        }
+
+        private State transition(State state, char what) {
+            char stack_top = stack.get(cursor);
+            long count = 0;
+            for(; true; what = Alphabet.EPSILON) {
+                DPDATransition transition = null;
+                for(Transition other : state.getOutgoing()) {
+                    DPDATransition delta = (DPDATransition) other;
+                    if(delta.stack_top == Alphabet.ELSE ||
+                            delta.stack_top == stack_top) {
+                        if(delta.transitsOn(what)) {
+                            transition = delta;
+                            break;
+                        }
+                    }
+                }
+                if(transition == null) {
+                    return what == Alphabet.EPSILON ? state : null;
+                }
+                if(count++ == symbol_limit) return state;
+                // a cycle of EPSILON transitions never ends on its own
+                if(steps == check) {
+                    status = checkLimits(steps);
+                    if(status != 0) return null;
+                    check = nextCheck(steps);
+                }
+
+                int pos = cursor;
+                if(pos == 0 && stack.get(0) == Alphabet.BLANK) pos = -1;
+                if(transition.stack_action == DPDATransition.STACK_POP) {
+                    if(pos >= 0) {
+                        stack.set(pos, Alphabet.BLANK);
+                        if(pos > 0) {
+                            cursor = pos - 1;
+                            stack_top = stack.get(pos - 1);
+                        } else {
+                            stack_top = Alphabet.BLANK;
+                        }
+                    }
+                } else if(transition.stack_action == DPDATransition.STACK_PUSH) {
+                    if(pos >= 0) cursor = pos + 1;
+                    stack.set(pos + 1, transition.stack_push);
+                    stack_top = transition.stack_push;
+                }
+
+                state = transition.getDest();
+                ++steps;
+            }
         }
     }
 
+    private StringBuffer input = new StringBuffer();
+        // the symbols typed in this run, including those stepped back over
+
     public DPDA() {
         setTapeListener(new MyTapeListener());
     }
+    public void setToolBoxTape(ToolBox toolbox, Tape tape) {
+        super.setToolBoxTape(toolbox, tape);
+        toolbox.setJumpVisible(true);
+    }
 
     public State createState() {
         return new DPDA.DPDAState();
@@ -252,11 +357,63 @@ class DPDA extends Automaton {
     public Transition createTransition(State src, State dst) {
         return new DPDA.DPDATransition(src, dst);
     }
+    public Simulation createSimulation() {
+        return new MySimulation();
+    }
 
     public void doPlay() {
         super.doPlay();
+        input.setLength(0);
         transition(getCanvas().getTape(), Alphabet.EPSILON);
     }
+    // Moves to the given step, each step being one symbol typed since the
+    // simulation started: back by undoing steps if the history still
+    // holds them, and otherwise by replaying the symbols headlessly from
+    // the current step or the latest checkpoint before the target. Symbols
+    // undone by back-stepping are kept until another is typed, so that
+    // jumping forward redoes them.
+    public void doJumpTo(long target) {
+        StepHistory history = getHistory();
+        if(target < 0) target = 0;
+        if(target > input.length()) target = input.length();
+        long from = history.getStep();
+        if(target == from) return;
+        if(target < from && undoTo(target)) return;
+
+        Tape tape = getCanvas().getTape();
+        StateSet states;
+        TapeContents stack;
+        int cursor;
+        if(target > from) {
+            states = getCurrent();
+            stack = tape.copyContents();
+            cursor = tape.getCursorPosition();
+        } else {
+            StepHistory.Checkpoint checkpoint = history.getCheckpoint(target);
+            if(checkpoint == null) return;
+            from = checkpoint.getStep();
+            states = checkpoint.getStates();
+            stack = checkpoint.getContents();
+            cursor = checkpoint.getPosition();
+            history.truncate(from);
+        }
+        Iterator<State> stateIter = states.iterator();
+        State state = stateIter.hasNext() ? stateIter.next() : null;
+
+        MySimulation sim = new MySimulation();
+        sim.resume(stack, cursor);
+        for(long i = from; i < target; i++) {
+            history.add(state, sim.getCursor(), sim.getStack());
+            if(state != null) state = sim.transition(state, input.charAt((int) i));
+        }
+
+        StateSet current = new StateSet(this);
+        if(state != null) current.add(state);
+        setCurrent(current);
+        tape.setContents(sim.getStack());
+        tape.setCursorPosition(sim.getCursor());
+        tape.setHeadPosition(sim.getCursor());
+    }
 
     public void transition(Tape tape, char what) {
         // determine current situation
@@ -266,21 +423,20 @@ class DPDA extends Automaton {
         int old_head_pos = tape.getHeadPosition();
         char stack_top = tape.read(old_head_pos);
         LinkedList used = new LinkedList();
+        int count = 0;
 
         // transition into next (we iterate because we have
         // to go through any EPSILON transitions)
         for(; true; what = Alphabet.EPSILON) {
             // determine next step
             DPDATransition transition = null;
-            for(Iterator it = getTransitions(); it.hasNext(); ) {
-                DPDATransition delta = (DPDATransition) it.next();
-                if(delta.getSource() == state) {
-                    if(delta.stack_top == Alphabet.ELSE ||
-                            delta.stack_top == stack_top) {
-                        if(delta.transitsOn(what)) {
-                            transition = delta;
-                            break;
-                        }
+            for(Transition other : state.getOutgoing()) {
+                DPDATransition delta = (DPDATransition) other;
+                if(delta.stack_top == Alphabet.ELSE ||
+                        delta.stack_top == stack_top) {
+                    if(delta.transitsOn(what)) {
+                        transition = delta;
+                        break;
                     }
                 }
             }
@@ -288,6 +444,11 @@ class DPDA extends Automaton {
                 if(what != Alphabet.EPSILON) state = null;
                 break;
             }
+            if(count++ == MAX_EPSILON_STEPS) {
+                JOptionPane.showMessageDialog(null, "Stopped after "
+                    + MAX_EPSILON_STEPS + " transitions without input.");
+                break;
+            }
 
             // alter stack according to traversed transition
             int pos = tape.getCursorPosition();
@@ -0,0 +1,190 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Builds random automata of a given size over a given alphabet, for
+// timing the simulation and for loading the editor with more than anyone
+// would draw. The automata are built through the same calls that reading
+// a file makes, laid out on a grid, and saved with Automaton.print. The
+// same seed and settings always give the same automaton.
+//
+// Every state has a transition on each symbol, so no run stops for want
+// of one; a Turing machine has one on BLANK too, and so never halts.
+class Generator {
+    public static final String DEFAULT_ALPHABET = "ab";
+    private static final int LAYOUT_SPACING = 100;
+
+    private Random random;
+    private String alphabet = DEFAULT_ALPHABET;
+    private int fanout = 2;            // NFA transitions per state and symbol
+    private double epsilon_density = 0.25;
+        // mean NFA EPSILON transitions per state
+    private double final_density = 0.25; // fraction of states final
+
+    public Generator(long seed) {
+        random = new Random(seed);
+    }
+
+    // Sets the symbols that transitions read, which may not include
+    // EPSILON, ELSE or BLANK.
+    public void setAlphabet(String value) {
+        if(value.length() == 0) {
+            throw new IllegalArgumentException("alphabet is empty");
+        }
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == Alphabet.EPSILON || c == Alphabet.ELSE || c == Alphabet.BLANK) {
+                throw new IllegalArgumentException("alphabet may not include "
+                    + Alphabet.toString(c));
+            }
+        }
+        alphabet = value;
+    }
+    public void setFanout(int value) {
+        fanout = value;
+    }
+    public void setEpsilonDensity(double value) {
+        epsilon_density = value;
+    }
+    public void setFinalDensity(double value) {
+        final_density = value;
+    }
+
+    // Creates an automaton of the type named as in the file format:
+    // dfa, nfa, dpda or turing.
+    public Automaton create(String type, int size) {
+        if(type.equals("dfa")) return createDFA(size);
+        if(type.equals("nfa")) return createNFA(size);
+        if(type.equals("dpda")) return createDPDA(size);
+        if(type.equals("turing")) return createTuringMachine(size);
+        throw new IllegalArgumentException("unknown automaton type " + type);
+    }
+
+    public DFA createDFA(int size) {
+        DFA ret = new DFA();
+        ret.getAlphabet().set(alphabet + Alphabet.ELSE);
+        State[] states = addStates(ret, size);
+        for(int i = 0; i < size; i++) {
+            Map<State,StringBuffer> dests = new LinkedHashMap<State,StringBuffer>();
+            for(int k = 0; k < alphabet.length(); k++) {
+                addSymbol(dests, pick(states), alphabet.charAt(k));
+            }
+            addTransitions(ret, states[i], dests);
+        }
+        return ret;
+    }
+
+    // Each state has fanout transitions on each symbol, some of which
+    // may share a destination, and on average epsilon_density EPSILON
+    // transitions.
+    public NFA createNFA(int size) {
+        NFA ret = new NFA();
+        ret.getAlphabet().set(alphabet + Alphabet.EPSILON + Alphabet.ELSE);
+        State[] states = addStates(ret, size);
+        for(int i = 0; i < size; i++) {
+            Map<State,StringBuffer> dests = new LinkedHashMap<State,StringBuffer>();
+            for(int k = 0; k < alphabet.length(); k++) {
+                for(int j = 0; j < fanout; j++) {
+                    addSymbol(dests, pick(states), alphabet.charAt(k));
+                }
+            }
+            int epsilons = (int) epsilon_density;
+            if(random.nextDouble() < epsilon_density - epsilons) ++epsilons;
+            for(int j = 0; j < epsilons; j++) {
+                addSymbol(dests, pick(states), Alphabet.EPSILON);
+            }
+            addTransitions(ret, states[i], dests);
+        }
+        return ret;
+    }
+
+    // Each transition pushes a symbol, pops or leaves the stack, whatever
+    // its top, so the automaton stays deterministic.
+    public DPDA createDPDA(int size) {
+        DPDA ret = new DPDA();
+        ret.getAlphabet().set(alphabet + Alphabet.ELSE);
+        State[] states = addStates(ret, size);
+        for(int i = 0; i < size; i++) {
+            for(int k = 0; k < alphabet.length(); k++) {
+                DPDA.DPDATransition transition
+                    = (DPDA.DPDATransition) ret.addTransition(states[i],
+                        pick(states));
+                transition.setTransits("" + alphabet.charAt(k));
+                transition.setStackBehavior(Alphabet.ELSE,
+                    random.nextInt(3) - 1, pickSymbol());
+            }
+        }
+        return ret;
+    }
+
+    // Each transition writes a symbol of the alphabet and moves either
+    // way at random.
+    public TuringMachine createTuringMachine(int size) {
+        TuringMachine ret = new TuringMachine();
+        ret.getAlphabet().set(alphabet + Alphabet.BLANK + Alphabet.ELSE);
+        State[] states = addStates(ret, size);
+        String symbols = alphabet + Alphabet.BLANK;
+        for(int i = 0; i < size; i++) {
+            for(int k = 0; k < symbols.length(); k++) {
+                TuringMachine.TMTransition transition
+                    = (TuringMachine.TMTransition) ret.addTransition(states[i],
+                        pick(states));
+                transition.setTransits("" + symbols.charAt(k));
+                transition.setDirection(random.nextBoolean() ? 1 : -1);
+                transition.setOutput(pickSymbol());
+            }
+        }
+        return ret;
+    }
+
+    // Returns a random string over the alphabet.
+    public String createInput(int length) {
+        char[] ret = new char[length];
+        for(int i = 0; i < length; i++) ret[i] = pickSymbol();
+        return new String(ret);
+    }
+
+    // Adds the states, laid out on a square grid with the first initial.
+    private State[] addStates(Automaton automaton, int size) {
+        int per_line = Math.max(1, (int) Math.ceil(Math.sqrt(size)));
+        State[] ret = new State[size];
+        for(int i = 0; i < size; i++) {
+            State state = automaton.addState();
+            state.move(LAYOUT_SPACING / 2 + LAYOUT_SPACING * (i % per_line),
+                LAYOUT_SPACING / 2 + LAYOUT_SPACING * (i / per_line));
+            if(i == 0) state.setInitial(true);
+            if(random.nextDouble() < final_density) state.setFinal(true);
+            ret[i] = state;
+        }
+        return ret;
+    }
+    private State pick(State[] states) {
+        return states[random.nextInt(states.length)];
+    }
+    private char pickSymbol() {
+        return alphabet.charAt(random.nextInt(alphabet.length()));
+    }
+    // DFAs and NFAs allow one transition between a pair of states, so
+    // symbols going to the same destination share it.
+    private static void addSymbol(Map<State,StringBuffer> dests, State dst,
+            char symbol) {
+        StringBuffer symbols = dests.get(dst);
+        if(symbols == null) {
+            symbols = new StringBuffer();
+            dests.put(dst, symbols);
+        }
+        if(symbols.indexOf("" + symbol) < 0) symbols.append(symbol);
+    }
+    private static void addTransitions(Automaton automaton, State src,
+            Map<State,StringBuffer> dests) {
+        for(Map.Entry<State,StringBuffer> entry : dests.entrySet()) {
+            Transition transition = automaton.addTransition(src, entry.getKey());
+            transition.setTransits(entry.getValue().toString());
+        }
+    }
+}
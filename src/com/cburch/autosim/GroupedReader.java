@@ -3,20 +3,30 @@
 
 package com.cburch.autosim;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 
+// Reads the nested-group format written by GroupedWriter. The reader
+// keeps a cursor into its own character buffer and scans each token
+// once, unescaping straight into a reused StringBuilder, so the only
+// allocation per token is the String it returns.
+//
+// As in the line-based format, a line's leading tabs (up to the current
+// group depth) are indentation, and a token ends at an unescaped brace
+// or at the end of its line.
 class GroupedReader {
+    private static final int BUFFER_SIZE = 8192;
+
     private int depth = 0;
-    private BufferedReader reader;
-    private int line_number = 1;
-    private String buffer;
+    private Reader reader;
+    private int line_number = 0;
+    private char[] buf = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private boolean in_line = false; // cursor lies within an unfinished line
+    private StringBuilder token = new StringBuilder();
 
     public GroupedReader(Reader reader) {
-        this.reader = new BufferedReader(reader);
-    }
-    public GroupedReader(BufferedReader reader) {
         this.reader = reader;
     }
 
@@ -25,104 +35,142 @@ class GroupedReader {
     }
 
     public String readLine() throws IOException {
-        getBuffer();
-
-        // find end of buffer (if any)
-        int pos_lb = findFirstUnescaped(buffer, '{');
-        int pos_rb = findFirstUnescaped(buffer, '}');
-        int pos = pos_lb;
-        if(pos_rb >= 0 && (pos == -1 || pos_rb < pos)) pos = pos_rb;
-
-        // compute ret; trim buffer
-        String ret;
-        if(pos < 0) {
-            ret = buffer;
-            buffer = null;
-        } else {
-            ret = buffer.substring(0, pos);
-            buffer = buffer.substring(pos);
+        if(!getBuffer()) return null;
+        token.setLength(0);
+        scanToken(token);
+        return token.toString();
+    }
+    // Reads a token as readLine() does, without surrounding whitespace.
+    public String readKey() throws IOException {
+        if(!getBuffer()) return null;
+        token.setLength(0);
+        for(int c = peek(); c >= 0 && c <= ' ' && c != '\n' && c != '\r';
+                c = peek()) {
+            ++pos;
         }
-
-        ret = unprotect(ret);
-        return ret;
+        scanToken(token);
+        int len = token.length();
+        while(len > 0 && token.charAt(len - 1) <= ' ') --len;
+        token.setLength(len);
+        return token.toString();
     }
 
     public void beginGroup() throws IOException {
-        getBuffer();
-        if(buffer.charAt(0) != '{') {
-            throw new IOException("Not at beginning of group");
+        if(!getBuffer() || peek() != '{') {
+            throw new IOException("Not at beginning of group" + where());
         }
         ++depth;
-        buffer = buffer.substring(1);
+        ++pos;
     }
     public void startGroup() throws IOException {
         beginGroup();
     }
     public void endGroup() throws IOException {
-        getBuffer();
-        if(buffer.charAt(0) != '}') {
-            throw new IOException("Not at end of group");
+        if(!getBuffer() || peek() != '}') {
+            throw new IOException("Not at end of group" + where());
         }
         --depth;
-        buffer = buffer.substring(1);
+        ++pos;
     }
     public boolean atFileEnd() throws IOException {
-        getBuffer();
-        return buffer == null;
+        return !getBuffer();
     }
     public boolean atGroupEnd() throws IOException {
-        getBuffer();
-        return buffer.charAt(0) == '}';
+        if(!getBuffer()) {
+            throw new IOException("Unexpected end of file" + where());
+        }
+        return peek() == '}';
     }
 
     public String readGroup() throws IOException {
         beginGroup();
-        StringBuffer ret = new StringBuffer(readLine());
+        token.setLength(0);
         getBuffer();
-        while(buffer.charAt(0) != '}') {
-            ret.append('\n');
-            ret.append(readLine());
-            getBuffer();
+        scanToken(token);
+        while(!atGroupEnd()) {
+            if(peek() == '{') {
+                throw new IOException("Unexpected group" + where());
+            }
+            token.append('\n');
+            scanToken(token);
         }
         endGroup();
-        return ret.toString();
+        return token.toString();
     }
 
-    private void getBuffer() throws IOException {
-        if(buffer != null && buffer.length() > 0) return;
-        
-        ++line_number;
-        buffer = reader.readLine();
-        if(buffer == null) return;
-
-        int i = 0;
-        while(i < depth && buffer.length() > i
-                && buffer.charAt(i) == '\t') {
-            i++;
+    //
+    // INTERNAL METHODS
+    //
+    // Ensures the cursor is in a line with something left in it, moving
+    // to the next line if the current one is used up. A freshly started
+    // line counts even if it is empty. Returns false at end of file.
+    private boolean getBuffer() throws IOException {
+        if(in_line) {
+            int c = peek();
+            if(c >= 0 && c != '\n' && c != '\r') return true;
+            if(c >= 0) ++pos;
+            if(c == '\r' && peek() == '\n') ++pos;
+            in_line = false;
         }
-        buffer = buffer.substring(i);
+        if(peek() < 0) return false;
+
+        in_line = true;
+        ++line_number;
+        for(int i = 0; i < depth && peek() == '\t'; i++) ++pos;
+        return true;
     }
-    private int findFirstUnescaped(String search, char find) {
-        int pos = 0;
-        while(true) {
-            pos = search.indexOf(find, pos);
-            if(pos < 0) return -1;
-            if(pos == 0 || search.charAt(pos - 1) != '\\') return pos;
+    // Appends characters up to the next unescaped brace or the end of
+    // the line, dropping the backslashes that protect them.
+    private void scanToken(StringBuilder dest) throws IOException {
+        while(pos < limit || fill()) {
+            int start = pos;
+            int end = limit;
+            char c = 0;
+            while(pos < end) {
+                c = buf[pos];
+                if(c == '{' || c == '}' || c == '\\'
+                        || c == '\n' || c == '\r') {
+                    break;
+                }
+                ++pos;
+            }
+            dest.append(buf, start, pos - start);
+            if(pos == end) continue;
+            if(c != '\\') return;
+
+            ++pos;
+            if(pos >= limit && !fill()) {
+                dest.append('\\');
+                return;
+            }
+            c = buf[pos];
+            if(c == '\n' || c == '\r') {
+                dest.append('\\');
+                return;
+            }
+            dest.append(c);
             ++pos;
         }
     }
-    private String unprotect(String what) {
-        int pos = 0;
-        StringBuffer ret = new StringBuffer();
-        while(true) {
-            int newpos = what.indexOf('\\', pos);
-            if(newpos < 0) break;
-
-            ret.append(what.substring(pos, newpos));
-            ret.append(what.charAt(newpos + 1));
-            pos = newpos + 2;
-        }
-        ret.append(what.substring(pos));
-        return ret.toString();
+    // Returns the character at the cursor, or -1 at end of file.
+    private int peek() throws IOException {
+        return pos < limit || fill() ? buf[pos] : -1;
+    }
+    // Refills the buffer once the cursor has reached its limit. Returns
+    // false at end of file.
+    private boolean fill() throws IOException {
+        if(pos < limit) return true;
+        pos = 0;
+        limit = 0;
+        int n;
+        do {
+            n = reader.read(buf, 0, buf.length);
+        } while(n == 0);
+        if(n < 0) return false;
+        limit = n;
+        return true;
+    }
+    private String where() {
+        return " (line " + line_number + ")";
     }
 }
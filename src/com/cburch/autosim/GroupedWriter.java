@@ -4,23 +4,33 @@
 package com.cburch.autosim;
 
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 
+// Writes the nested-group format read by GroupedReader. Text is escaped
+// in one pass into a StringBuilder, which serves as the output buffer
+// and is handed to the underlying writer whenever it grows large.
 class GroupedWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String NEWLINE = System.getProperty("line.separator");
+
     private int depth = 0;
     private PrintWriter writer;
     private int line_number = 1;
     private boolean begin_line = true;
+    private StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+    private char[] chunk = new char[BUFFER_SIZE];
 
     public GroupedWriter(Writer writer) {
         this.writer = new PrintWriter(writer);
     }
     public GroupedWriter(OutputStream stream) {
-        this.writer = new PrintWriter(stream);
+        this(new OutputStreamWriter(stream));
     }
 
     public void close() {
+        flushBuffer();
         writer.close();
     }
 
@@ -30,22 +40,22 @@ class GroupedWriter {
     }
     public void println(String s) {
         doPrint(s);
-        doPrint("\n");
+        newLine();
     }
     public void println() {
-        doPrint("\n");
+        newLine();
     }
 
     public void beginGroup() {
         ++depth;
         indent();
-        writer.print("{");
+        buffer.append('{');
     }
     public void startGroup() { beginGroup(); }
     public void endGroup() {
         --depth;
         indent();
-        writer.print("}");
+        buffer.append('}');
     }
 
     public void printGroup(String s) {
@@ -60,45 +70,38 @@ class GroupedWriter {
         println();
     }
 
+    // Escapes braces and backslashes as it copies, starting a new line
+    // (with indentation) at each newline.
     private void doPrint(String s) {
-        for(int newline = s.indexOf('\n'); newline >= 0;
-                newline = s.indexOf('\n')) {
-            if(newline > 0) {
-                indent();
-                writer.println(protect(s.substring(0, newline)));
-            } else {
-                writer.println();
+        int n = s.length();
+        for(int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if(c == '\n') {
+                newLine();
+                continue;
             }
-            ++line_number;
-            begin_line = true;
-            s = s.substring(newline + 1);
-        }
-        if(s.length() > 0) {
             indent();
-            writer.print(protect(s));
+            if(c == '{' || c == '}' || c == '\\') buffer.append('\\');
+            buffer.append(c);
         }
     }
+    private void newLine() {
+        buffer.append(NEWLINE);
+        ++line_number;
+        begin_line = true;
+        if(buffer.length() >= BUFFER_SIZE) flushBuffer();
+    }
+    private void flushBuffer() {
+        int n = buffer.length();
+        if(chunk.length < n) chunk = new char[n];
+        buffer.getChars(0, n, chunk, 0);
+        writer.write(chunk, 0, n);
+        buffer.setLength(0);
+    }
     private void indent() {
         if(begin_line) {
-            for(int i = 0; i < depth; i++) writer.print("\t");
+            for(int i = 0; i < depth; i++) buffer.append('\t');
             begin_line = false;
         }
     }
-    private String protect(String s) {
-        int cur_pos = 0;
-        while(true) {
-            cur_pos = findFirstIndex(s, cur_pos, "{}\\");
-            if(cur_pos < 0) return s;
-            s = s.substring(0, cur_pos) + "\\" + s.substring(cur_pos);
-            cur_pos += 2;
-        }
-    }
-    private int findFirstIndex(String s, int pos, String t) {
-        int ret = -1;
-        for(int i = 0; i < t.length(); i++) {
-            int next = s.indexOf(t.charAt(i), pos);
-            if(next >= 0 && (ret == -1 || next < ret)) ret = next;
-        }
-        return ret;
-    }
 }
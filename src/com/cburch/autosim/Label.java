@@ -36,8 +36,12 @@ class Label {
     public Label(LabelOwner owner) {
         this.owner = owner;
     }
+    public String getText() { return text; }
     public void setText(String text) {
-        this.text = text;
+        if(!this.text.equals(text)) {
+            this.text = text;
+            owner.labelChanged(this);
+        }
     }
 
     public void print(GroupedWriter fout) {
@@ -76,6 +80,7 @@ class Label {
         } else {
             return false;
         }
+        owner.labelChanged(this);
         return true;
     }
 
@@ -122,9 +127,11 @@ class Label {
         if(what == 0x08 || what == 0x7F) {
             if(text.length() <= 0) return false;
             text = text.substring(0, text.length() - 1);
+            owner.labelChanged(this);
             return true;
         } else if(!Character.isISOControl(what)) {
             text += what;
+            owner.labelChanged(this);
             return true;
         } else {
             return false;
@@ -148,6 +155,7 @@ class Label {
             Font newval = showFontDialog(label.font);
             if(newval != null) {
                 label.font = newval;
+                label.owner.labelChanged(label);
                 canvas.expose(old_rect);
                 label.exposeCursor(canvas, g);
                 canvas.expose(label.getBounds(g));
@@ -160,7 +168,10 @@ class Label {
     }
     public void setFontByDialog() {
         Font newval = showFontDialog(font);
-        if(newval != null) font = newval;
+        if(newval != null) {
+            font = newval;
+            owner.labelChanged(this);
+        }
     }
 
     private static class FontDialog extends JDialog
@@ -8,4 +8,5 @@ interface LabelOwner {
     int getLabelY(Label which);
     int getLabelHAlign(Label which);
     int getLabelVAlign(Label which);
+    void labelChanged(Label which); // text or font changed
 }
@@ -0,0 +1,125 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Simulates an NFA by building its subset-construction DFA on the fly.
+// Each set of active states that is reached gets interned as a DFA state
+// and its transitions are filled in the first time they are taken, so
+// that repeated scanning runs at close to table speed. When the cache
+// outgrows its memory budget it is flushed and rebuilt from the
+// current set. An instance is not safe to share between threads.
+class LazyDFA {
+    public static final long DEFAULT_BUDGET = 16L << 20;
+
+    private static final int UNKNOWN = -1;
+    private static final int STATE_OVERHEAD = 64; // bytes, roughly
+
+    private NFATable nfa;
+    private int width;
+    private long budget;
+
+    private HashMap<StateSet,Integer> ids = new HashMap<StateSet,Integer>();
+    private ArrayList<StateSet> sets = new ArrayList<StateSet>();
+    private int[] table = new int[0];  // (DFA state * width + column) -> DFA state
+    private boolean[] accepting = new boolean[0];
+    private boolean[] dead = new boolean[0];
+    private long used = 0;
+    private int flushes = 0;
+    private long work = 0; // NFA states visited filling in transitions
+
+    public LazyDFA(NFA automaton) {
+        this(new NFATable(automaton), DEFAULT_BUDGET);
+    }
+    public LazyDFA(NFATable nfa, long budget) {
+        this.nfa = nfa;
+        this.width = nfa.getWidth();
+        this.budget = budget;
+    }
+
+    public int getInitial() {
+        StateSet initial = nfa.getInitial();
+        Integer ret = ids.get(initial);
+        return ret != null ? ret.intValue() : intern(initial);
+    }
+    public boolean isAccepting(int state) { return accepting[state]; }
+    public boolean isDead(int state) { return dead[state]; }
+    public StateSet getStateSet(int state) { return sets.get(state); }
+    public int getCachedStateCount() { return sets.size(); }
+    public int getFlushCount() { return flushes; }
+    // Returns the number of NFA states visited in computing transitions
+    // not yet cached, a measure of the time step() has taken beyond
+    // table lookups.
+    public long getWork() { return work; }
+
+    public int step(int state, char c) {
+        int col = nfa.getColumn(c);
+        int ret = table[state * width + col];
+        if(ret != UNKNOWN) return ret;
+
+        // compute the successor set and cache the transition
+        StateSet src = sets.get(state);
+        StateSet dst = nfa.move(src, col);
+        work += src.size() + dst.size();
+
+        Integer known = ids.get(dst);
+        if(known != null) {
+            ret = known.intValue();
+        } else {
+            if(used + cost(dst) > budget && sets.size() > 1) {
+                flush();
+                state = intern(src);
+            }
+            ret = intern(dst);
+        }
+        table[state * width + col] = ret;
+        return ret;
+    }
+    public boolean accepts(CharSequence input) {
+        int state = getInitial();
+        for(int i = 0; i < input.length() && !dead[state]; i++) {
+            state = step(state, input.charAt(i));
+        }
+        return accepting[state];
+    }
+
+    private int intern(StateSet set) {
+        int ret = sets.size();
+        sets.add(set);
+        ids.put(set, Integer.valueOf(ret));
+        used += cost(set);
+
+        if(table.length < (ret + 1) * width) {
+            int cap = Math.max(16, 2 * accepting.length);
+            int[] new_table = new int[cap * width];
+            System.arraycopy(table, 0, new_table, 0, table.length);
+            for(int i = table.length; i < new_table.length; i++) {
+                new_table[i] = UNKNOWN;
+            }
+            boolean[] new_accepting = new boolean[cap];
+            System.arraycopy(accepting, 0, new_accepting, 0, accepting.length);
+            boolean[] new_dead = new boolean[cap];
+            System.arraycopy(dead, 0, new_dead, 0, dead.length);
+            table = new_table;
+            accepting = new_accepting;
+            dead = new_dead;
+        }
+        accepting[ret] = set.containsFinal();
+        dead[ret] = set.size() == 0;
+        return ret;
+    }
+    private void flush() {
+        ids.clear();
+        sets.clear();
+        for(int i = 0; i < table.length; i++) table[i] = UNKNOWN;
+        used = 0;
+        ++flushes;
+    }
+    private long cost(StateSet set) {
+        return STATE_OVERHEAD + 4L * width
+            + 8L * ((nfa.getAutomaton().getStateIdCount() + 63) >> 6);
+    }
+}
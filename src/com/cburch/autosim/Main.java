@@ -21,9 +21,15 @@
  
 package com.cburch.autosim;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 
 public class Main {
     static final String VERSION_NAME = "1.2";
@@ -32,14 +38,96 @@ public class Main {
     private Main() { }
 
     public static void main(String[] args) {
+        if(args.length > 0 && args[0].equals("-batch")) {
+            if(args.length < 2 || args.length > 4) {
+                System.err.println("usage: -batch automaton-file"
+                    + " [max-steps [max-millis]] < inputs");
+                System.exit(1);
+            }
+            try {
+                long max_steps = Long.MAX_VALUE;
+                long max_millis = 0;
+                if(args.length > 2) max_steps = Long.parseLong(args[2]);
+                if(args.length > 3) max_millis = Long.parseLong(args[3]);
+                runBatch(new File(args[1]), max_steps, max_millis);
+            } catch(NumberFormatException e) {
+                System.err.println("budget must be a number: " + e.getMessage());
+                System.exit(1);
+            } catch(IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if(args.length > 0 && args[0].equals("-binary")) {
+            if(args.length != 3) {
+                System.err.println("usage: -binary automaton-file binary-file");
+                System.exit(1);
+            }
+            try {
+                GroupedReader fin = new GroupedReader(new FileReader(new File(args[1])));
+                Automaton automaton = Automaton.read(fin);
+                fin.close();
+                BinaryAutomaton.write(automaton, new File(args[2]));
+            } catch(IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if(args.length > 0 && args[0].equals("-generate")) {
+            if(args.length < 4 || args.length > 7) {
+                System.err.println("usage: -generate dfa|nfa|dpda|turing"
+                    + " states automaton-file"
+                    + " [alphabet [epsilon-density [seed]]]");
+                System.exit(1);
+            }
+            try {
+                generate(args);
+            } catch(NumberFormatException e) {
+                System.err.println("states, density and seed must be numbers: "
+                    + e.getMessage());
+                System.exit(1);
+            } catch(IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            } catch(IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if(args.length > 0 && (args[0].equals("-determinize")
+                || args[0].equals("-minimize"))) {
+            if(args.length != 3) {
+                System.err.println("usage: " + args[0]
+                    + " automaton-file dfa-file");
+                System.exit(1);
+            }
+            try {
+                convert(args[0], new File(args[1]), new File(args[2]));
+            } catch(IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
         // to set up Macintosh menu bar to display application name
         System.setProperty("com.apple.mrj.application.apple.menu.about.name", "AutoSim");
 
         Automaton automaton = null;
         if(args.length > 0) {
             try {
-                GroupedReader fin = new GroupedReader(new FileReader(new File(args[0])));
-                automaton = Automaton.read(fin);
+                File file = new File(args[0]);
+                if(BinaryAutomaton.isBinary(file)) {
+                    automaton = BinaryAutomaton.open(file).toAutomaton();
+                } else {
+                    GroupedReader fin = new GroupedReader(new FileReader(file));
+                    automaton = Automaton.read(fin);
+                }
             } catch(IOException e) {
                 System.err.println(e.getMessage());
                 return;
@@ -49,4 +137,83 @@ public class Main {
         MainFrame win = new MainFrame(automaton);
         win.setVisible(true);
     }
+
+    // Writes a random automaton, as described by the -generate arguments,
+    // to a file that the program can then open or simulate.
+    private static void generate(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Generator generator = new Generator(args.length > 6
+            ? Long.parseLong(args[6]) : 0);
+        if(args.length > 4) generator.setAlphabet(args[4]);
+        if(args.length > 5) {
+            generator.setEpsilonDensity(Double.parseDouble(args[5]));
+        }
+        Automaton automaton = generator.create(args[1],
+            Integer.parseInt(args[2]));
+        GroupedWriter fout = new GroupedWriter(new FileOutputStream(new File(args[3])));
+        automaton.print(fout);
+        fout.close();
+    }
+
+    // Reads the automaton in one file and writes the DFA that the given
+    // option makes of it to another: -determinize converts an NFA, and
+    // -minimize minimizes a DFA or an NFA.
+    private static void convert(String option, File src, File dst)
+            throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Automaton automaton = readAutomaton(src);
+        DFATable table;
+        if(automaton instanceof NFA) {
+            table = new SubsetConstruction((NFA) automaton).run();
+        } else if(option.equals("-minimize") && automaton instanceof DFA
+                && !(automaton instanceof TuringMachine)) {
+            table = new DFATable((DFA) automaton);
+        } else {
+            throw new IOException(src + ": not a"
+                + (option.equals("-minimize") ? " finite" : " nondeterministic finite")
+                + " automaton");
+        }
+        if(option.equals("-minimize")) table = DFAMinimization.minimize(table);
+        DFA result = table.createAutomaton();
+        GroupedWriter fout = new GroupedWriter(new FileOutputStream(dst));
+        result.print(fout);
+        fout.close();
+    }
+    private static Automaton readAutomaton(File file) throws IOException {
+        if(BinaryAutomaton.isBinary(file)) {
+            return BinaryAutomaton.open(file).toAutomaton();
+        }
+        GroupedReader fin = new GroupedReader(new FileReader(file));
+        Automaton ret = Automaton.read(fin);
+        fin.close();
+        return ret;
+    }
+
+    // Reads one input string per line from standard input and reports
+    // whether the automaton in the given file accepts it, without
+    // opening any windows. A binary file is simulated straight from
+    // the mapped file. Each run is limited to the given number of
+    // steps and milliseconds (0 for no time limit).
+    private static void runBatch(File file, long max_steps, long max_millis)
+            throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Simulation sim;
+        if(BinaryAutomaton.isBinary(file)) {
+            sim = BinaryAutomaton.open(file).createSimulation();
+        } else {
+            GroupedReader fin = new GroupedReader(new FileReader(file));
+            Automaton automaton = Automaton.read(fin);
+            fin.close();
+            sim = automaton.createSimulation();
+        }
+        sim.setStepBudget(max_steps);
+        sim.setTimeBudget(max_millis);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out)));
+        for(String line = in.readLine(); line != null; line = in.readLine()) {
+            out.println(sim.run(line) + "\t" + line);
+        }
+        out.flush();
+    }
 }
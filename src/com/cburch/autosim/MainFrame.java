@@ -79,11 +79,17 @@ class MainFrame extends JFrame {
     }
 
     public void openAutomaton(File f) throws IOException {
-        FileReader fread = new FileReader(f);
-        GroupedReader fin = new GroupedReader(fread);
+        Automaton automaton;
+        if(BinaryAutomaton.isBinary(f)) {
+            automaton = BinaryAutomaton.open(f).toAutomaton();
+        } else {
+            FileReader fread = new FileReader(f);
+            GroupedReader fin = new GroupedReader(fread);
+            automaton = Automaton.read(fin);
+            fin.close();
+        }
 
         tape.completeReset();
-        Automaton automaton = Automaton.read(fin);
         canvas.setAutomaton(automaton);
         canvas.exposeAll();
         computeTitle();
@@ -132,6 +138,9 @@ class MainFrame extends JFrame {
         private JMenuItem newTuring;
         private JMenuItem open;
         private JMenuItem save;
+        private JMenuItem saveBinary;
+        private JMenuItem determinize;
+        private JMenuItem minimize;
         private JMenuItem print;
         private JMenuItem quit;
 
@@ -148,6 +157,9 @@ class MainFrame extends JFrame {
             this.add(newMenu);
             open = create(this, "Open", KeyEvent.VK_O);
             save = create(this, "Save", KeyEvent.VK_S);
+            saveBinary = create(this, "Save Binary");
+            determinize = create(this, "Convert to DFA");
+            minimize = create(this, "Minimize DFA");
             print = create(this, "Print", KeyEvent.VK_P);
             quit = create(this, "Quit", KeyEvent.VK_Q);
         }
@@ -173,7 +185,10 @@ class MainFrame extends JFrame {
             else if(src == newDpda) doNew(DPDA.class);
             else if(src == newTuring) doNew(TuringMachine.class);
             else if(src == open)    doOpen();
-            else if(src == save)    doSave();
+            else if(src == save)    doSave(false);
+            else if(src == saveBinary) doSave(true);
+            else if(src == determinize) doDeterminize();
+            else if(src == minimize) doMinimize();
             else if(src == print)   doPrint();
             else if(src == quit)    doQuit();
         }
@@ -215,7 +230,7 @@ class MainFrame extends JFrame {
             }
         }
 
-        private void doSave() {
+        private void doSave(boolean binary) {
             int returnVal = chooser.showSaveDialog(null);
             if(returnVal != JFileChooser.APPROVE_OPTION) return;
 
@@ -227,12 +242,60 @@ class MainFrame extends JFrame {
                     JOptionPane.YES_NO_OPTION);
                 if(confirm != JOptionPane.YES_OPTION) return;
             }
-            saveFile(f);
+            if(binary) saveBinaryFile(f);
+            else saveFile(f);
             curFile = f;
             computeTitle();
             canvas.commitTransaction(true);
         }
 
+        // Replaces the NFA with an equivalent DFA, laid out on a grid.
+        private void doDeterminize() {
+            Automaton automaton = canvas.getAutomaton();
+            if(!(automaton instanceof NFA)) {
+                JOptionPane.showMessageDialog(null,
+                    "Only a nondeterministic finite automaton can be converted.");
+                return;
+            }
+            int confirm = JOptionPane.showConfirmDialog(null,
+                    "Are you sure you want to replace the automaton with an equivalent DFA?",
+                    "Confirm Convert",
+                    JOptionPane.YES_NO_OPTION);
+            if(confirm != JOptionPane.YES_OPTION) return;
+            showConverted(SubsetConstruction.convert((NFA) automaton));
+        }
+        // Replaces a DFA, or an NFA, with the equivalent DFA of fewest
+        // states.
+        private void doMinimize() {
+            Automaton automaton = canvas.getAutomaton();
+            boolean nfa = automaton instanceof NFA;
+            if(!nfa && (!(automaton instanceof DFA)
+                    || automaton instanceof TuringMachine)) {
+                JOptionPane.showMessageDialog(null,
+                    "Only a finite automaton can be minimized.");
+                return;
+            }
+            int confirm = JOptionPane.showConfirmDialog(null,
+                    "Are you sure you want to replace the automaton with a minimal DFA?",
+                    "Confirm Minimize",
+                    JOptionPane.YES_NO_OPTION);
+            if(confirm != JOptionPane.YES_OPTION) return;
+            if(nfa) {
+                DFATable table = new SubsetConstruction((NFA) automaton).run();
+                showConverted(DFAMinimization.minimize(table).createAutomaton());
+            } else {
+                showConverted(DFAMinimization.minimize((DFA) automaton));
+            }
+        }
+        private void showConverted(Automaton automaton) {
+            curFile = null;
+            tape.completeReset();
+            canvas.setAutomaton(automaton);
+            canvas.exposeAll();
+            canvas.commitTransaction(true);
+            computeTitle();
+        }
+
         private void doPrint() {
             PrinterJob job = PrinterJob.getPrinterJob();
             if(job.printDialog() == false) return;
@@ -256,6 +319,14 @@ class MainFrame extends JFrame {
                     "Could not open file.");
             }
         }
+        public void saveBinaryFile(File f) {
+            try {
+                BinaryAutomaton.write(canvas.getAutomaton(), f);
+            } catch(IOException e) {
+                JOptionPane.showMessageDialog(null,
+                    "Could not save file: " + e.getMessage());
+            }
+        }
     }
 
     private class MenuHelp extends JMenu implements ActionListener {
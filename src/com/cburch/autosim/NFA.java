@@ -24,10 +24,87 @@ class NFA extends Automaton {
         }
     }
 
+    // EPSILON closures are computed per state on first use and kept
+    // until the transitions change.
+    private int closure_version = -1;
+    private int[][] epsilon_out;    // state id -> EPSILON successors
+    private StateSet[] closures;    // state id -> closure, or null
+
     public NFA() {
         getAlphabet().add(Alphabet.EPSILON);
     }
 
+    public void addEpsilonClosure(StateSet set) {
+        StateSet add = null;
+        for(int id = set.nextId(0); id >= 0; id = set.nextId(id + 1)) {
+            if(!hasEpsilonEdges(id)) continue;
+            if(add == null) add = new StateSet(this);
+            add.addAll(getEpsilonClosure(id));
+        }
+        if(add != null) set.addAll(add);
+    }
+    synchronized boolean hasEpsilonEdges(int id) {
+        checkEpsilonEdges();
+        return epsilon_out[id] != null;
+    }
+    // Returns the EPSILON closure of a single state, including the
+    // state itself. Callers must not modify the returned set.
+    synchronized StateSet getEpsilonClosure(int id) {
+        checkEpsilonEdges();
+        StateSet ret = closures[id];
+        if(ret != null) return ret;
+
+        ret = new StateSet(this);
+        ret.addId(id);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = id;
+        while(top > 0) {
+            int[] succs = epsilon_out[stack[--top]];
+            if(succs == null) continue;
+            for(int i = 0; i < succs.length; i++) {
+                if(ret.addId(succs[i])) {
+                    if(top == stack.length) {
+                        int[] grown = new int[2 * top];
+                        System.arraycopy(stack, 0, grown, 0, top);
+                        stack = grown;
+                    }
+                    stack[top++] = succs[i];
+                }
+            }
+        }
+        closures[id] = ret;
+        return ret;
+    }
+    private void checkEpsilonEdges() {
+        if(closure_version != getTransitionsVersion()
+                || epsilon_out.length != getStateIdCount()) {
+            computeEpsilonEdges();
+        }
+    }
+    private void computeEpsilonEdges() {
+        int n = getStateIdCount();
+        int[] counts = new int[n];
+        for(Transition transition : transitions) {
+            if(transition.transitsOn(Alphabet.EPSILON)) {
+                ++counts[transition.getSource().getId()];
+            }
+        }
+        epsilon_out = new int[n][];
+        for(int i = 0; i < n; i++) {
+            if(counts[i] > 0) epsilon_out[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for(Transition transition : transitions) {
+            if(transition.transitsOn(Alphabet.EPSILON)) {
+                int src = transition.getSource().getId();
+                epsilon_out[src][counts[src]++] = transition.getDest().getId();
+            }
+        }
+        closures = new StateSet[n];
+        closure_version = getTransitionsVersion();
+    }
+
     public void doPlay() {
         super.doPlay();
 
@@ -37,16 +114,40 @@ class NFA extends Automaton {
         anim.start();
     }
 
+    private class MySimulation extends Simulation {
+        private LazyDFA dfa = new LazyDFA(NFA.this);
+
+        public SimulationResult run(String input) {
+            startRun();
+            int state = dfa.getInitial();
+            long steps = 0;
+            long check = 0;
+            long work_check = dfa.getWork(); // an uncached step may visit
+                                             // every state, so count those
+            for(int i = 0; i < input.length() && !dfa.isDead(state); i++) {
+                if(steps == check || dfa.getWork() >= work_check) {
+                    int status = checkLimits(steps);
+                    if(status != 0) return new SimulationResult(status, steps);
+                    check = nextCheck(steps);
+                    work_check = dfa.getWork() + CHECK_INTERVAL;
+                }
+                state = dfa.step(state, input.charAt(i));
+                ++steps;
+            }
+            return new SimulationResult(dfa.isAccepting(state), steps);
+        }
+    }
+
     public State createState() {
         return new NFAState();
     }
     public Transition createTransition(State src, State dst) {
-        for(Transition transition : transitions) {
-            if(transition.getSource() == src
-                    && transition.getDest() == dst) {
-                return null;
-            }
+        for(Transition transition : src.getOutgoing()) {
+            if(transition.getDest() == dst) return null;
         }
         return new NFATransition(src, dst);
     }
+    public Simulation createSimulation() {
+        return new MySimulation();
+    }
 }
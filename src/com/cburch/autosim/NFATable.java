@@ -0,0 +1,120 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.Iterator;
+
+// The transitions of an NFA regrouped by source state and input column,
+// with ELSE already resolved, for the simulators that work on sets of
+// states. Columns are numbered as in DFATable: one per alphabet symbol
+// and a last one for characters outside the alphabet. Every EPSILON
+// closure is computed when the table is built, so that the table is
+// never written afterwards and may be used from several threads at once
+// without locking.
+class NFATable {
+    private NFA automaton;
+    private char[] symbols;    // column -> character
+    private Alphabet columns;  // character -> column, or -1 for other
+    private int other;         // column for characters outside the alphabet
+    private int width;         // number of columns
+    private int[][] moves;     // (state id * width + column) -> successors
+    private StateSet[] closures; // state id -> EPSILON closure, or null
+                                 // if the state has no EPSILON transitions
+    private StateSet initial;
+
+    public NFATable(NFA automaton) {
+        this.automaton = automaton;
+
+        // assign columns to symbols
+        Alphabet dict = automaton.getAlphabet();
+        StringBuffer syms = new StringBuffer();
+        for(int i = 0; i < dict.size(); i++) {
+            char c = dict.charAt(i);
+            if(c != Alphabet.ELSE && c != Alphabet.EPSILON) syms.append(c);
+        }
+        symbols = syms.toString().toCharArray();
+        width = symbols.length + 1;
+        other = symbols.length;
+        columns = new Alphabet(new String(symbols));
+
+        // gather successors of each state on each column, using the
+        // ELSE successors for columns where the state has no transition
+        int n = automaton.getStateIdCount();
+        moves = new int[n * width][];
+        boolean[] epsilon = new boolean[n];
+        int[][] fallback = new int[n][];
+        for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
+            Transition transition = it.next();
+            int src = transition.getSource().getId();
+            int dst = transition.getDest().getId();
+            if(transition.transitsOn(Alphabet.EPSILON)) epsilon[src] = true;
+            if(transition.transitsOn(Alphabet.ELSE)) {
+                fallback[src] = append(fallback[src], dst);
+            }
+            for(int col = 0; col < symbols.length; col++) {
+                if(transition.transitsOn(symbols[col])) {
+                    int k = src * width + col;
+                    moves[k] = append(moves[k], dst);
+                }
+            }
+        }
+        for(int src = 0; src < n; src++) {
+            for(int col = 0; col < width; col++) {
+                int k = src * width + col;
+                if(moves[k] == null) moves[k] = fallback[src];
+            }
+        }
+
+        closures = new StateSet[n];
+        for(int id = 0; id < n; id++) {
+            if(epsilon[id]) closures[id] = automaton.getEpsilonClosure(id);
+        }
+
+        initial = new StateSet(automaton);
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            State state = it.next();
+            if(state.isInitial()) initial.add(state);
+        }
+        addEpsilonClosure(initial);
+    }
+    private static int[] append(int[] list, int value) {
+        if(list == null) return new int[] { value };
+        int[] ret = new int[list.length + 1];
+        System.arraycopy(list, 0, ret, 0, list.length);
+        ret[list.length] = value;
+        return ret;
+    }
+
+    public NFA getAutomaton() { return automaton; }
+    public int getWidth() { return width; }
+    public char[] getSymbols() { return symbols; }
+    public int getColumn(char c) {
+        int col = columns.indexOf(c);
+        return col < 0 ? other : col;
+    }
+    // Callers must not modify the returned set.
+    public StateSet getInitial() { return initial; }
+
+    // Returns the states reached from src on the given column, including
+    // EPSILON closure.
+    public StateSet move(StateSet src, int column) {
+        StateSet ret = new StateSet(automaton);
+        for(int id = src.nextId(0); id >= 0; id = src.nextId(id + 1)) {
+            int[] succs = moves[id * width + column];
+            if(succs == null) continue;
+            for(int i = 0; i < succs.length; i++) ret.addId(succs[i]);
+        }
+        addEpsilonClosure(ret);
+        return ret;
+    }
+    private void addEpsilonClosure(StateSet set) {
+        StateSet add = null;
+        for(int id = set.nextId(0); id >= 0; id = set.nextId(id + 1)) {
+            if(closures[id] == null) continue;
+            if(add == null) add = new StateSet(automaton);
+            add.addAll(closures[id]);
+        }
+        if(add != null) set.addAll(add);
+    }
+}
@@ -0,0 +1,81 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs an automaton over input strings without touching the canvas or
+// the tape. Instances come from Automaton.createSimulation() and may be
+// reused for many inputs, but should not be shared between threads;
+// only cancel() may be called from elsewhere.
+//
+// Each run is bounded by a step budget and a time budget. Limits are
+// checked every CHECK_INTERVAL steps, so a run may overshoot the time
+// budget by that much work. Simulators whose steps vary widely in cost,
+// such as those tracking sets of NFA states, also check whenever they
+// have visited CHECK_INTERVAL states since the last check.
+abstract class Simulation {
+    public static final long CHECK_INTERVAL = 1 << 16;
+
+    private long step_budget = Long.MAX_VALUE;
+    private long time_budget = 0;
+    private long deadline = Long.MAX_VALUE;
+    private volatile boolean cancelled = false;
+
+    public abstract SimulationResult run(String input);
+
+    public List<SimulationResult> runAll(List<String> inputs) {
+        List<SimulationResult> ret = new ArrayList<SimulationResult>(inputs.size());
+        for(String input : inputs) {
+            ret.add(run(input));
+        }
+        return ret;
+    }
+
+    // Limits each run to the given number of steps.
+    public void setStepBudget(long steps) {
+        step_budget = steps;
+    }
+    // Limits each run to the given number of milliseconds; 0 means
+    // no limit.
+    public void setTimeBudget(long millis) {
+        time_budget = millis;
+    }
+    // Stops the current run, and any later ones, at the next check.
+    public void cancel() {
+        cancelled = true;
+    }
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    //
+    // METHODS FOR SUBCLASSES
+    //
+    protected void startRun() {
+        if(time_budget > 0) {
+            deadline = System.currentTimeMillis() + time_budget;
+        } else {
+            deadline = Long.MAX_VALUE;
+        }
+    }
+    // Returns the step count at which the run should next call
+    // checkLimits().
+    protected long nextCheck(long steps) {
+        long ret = steps + CHECK_INTERVAL;
+        return ret < step_budget ? ret : step_budget;
+    }
+    // Returns 0 if a run that has taken the given number of steps may
+    // continue, and otherwise the status it should stop with.
+    protected int checkLimits(long steps) {
+        if(cancelled) return SimulationResult.CANCELLED;
+        if(steps >= step_budget) return SimulationResult.BUDGET_EXHAUSTED;
+        if(deadline != Long.MAX_VALUE
+                && System.currentTimeMillis() >= deadline) {
+            return SimulationResult.BUDGET_EXHAUSTED;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,39 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+class SimulationResult {
+    public static final int ACCEPTED = 1;
+    public static final int REJECTED = 2;
+    public static final int BUDGET_EXHAUSTED = 3;
+    public static final int CANCELLED = 4;
+
+    private int status;
+    private long steps;
+
+    public SimulationResult(int status, long steps) {
+        this.status = status;
+        this.steps = steps;
+    }
+    public SimulationResult(boolean accepted, long steps) {
+        this(accepted ? ACCEPTED : REJECTED, steps);
+    }
+
+    public int getStatus() { return status; }
+    public boolean isAccepted() { return status == ACCEPTED; }
+    public boolean isHalted() { return status == ACCEPTED || status == REJECTED; }
+    public long getSteps() { return steps; }
+
+    public String toString() {
+        String what;
+        switch(status) {
+        case ACCEPTED:          what = "accept"; break;
+        case REJECTED:          what = "reject"; break;
+        case BUDGET_EXHAUSTED:  what = "budget exhausted"; break;
+        case CANCELLED:         what = "cancelled"; break;
+        default:                what = "??";
+        }
+        return what + "\t" + steps;
+    }
+}
@@ -1,8 +0,0 @@
-/* Copyright (c) 2006, Carl Burch. License information is located in the
- * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
-
-package com.cburch.autosim;
-
-interface Snapshot {
-    public void restore();
-}
@@ -0,0 +1,197 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+// A uniform grid over the bounding boxes of an automaton's components,
+// so that finding the component under the mouse tests only those near
+// it, and repainting a region draws only those it touches. Boxes depend
+// on font metrics, so a change to a component just marks its entry
+// stale; stale entries are recomputed at the next query. A component
+// whose box covers many cells, such as a long transition, is filed only
+// under the cells its regions touch, so that each cell holds only what
+// is drawn in it.
+//
+// Components are ordered as they are drawn: by layer, and within a
+// layer by when they were added. A query returns the last in that order,
+// which is the one drawn on top.
+class SpatialIndex {
+    public static final int ANY = -1;
+    public static final int TRANSITIONS = 0;
+    public static final int STATES = 1;
+    public static final int LABELS = 2;
+
+    private static final int CELL_SIZE = 128;
+    private static final int MAX_CELLS = 16;
+        // entries covering more cells than this are filed by their regions
+    private static final int SLACK = 4;
+        // margin around boxes, covering isIn()'s tolerance
+
+    private static class Entry {
+        private AutomatonComponent comp;
+        private int layer;
+        private long order;
+        private Rectangle bounds = new Rectangle();
+        private long[] keys = null; // cells filed under, if placed
+        private boolean stale = false;
+
+        private Entry(AutomatonComponent comp, int layer, long order) {
+            this.comp = comp;
+            this.layer = layer;
+            this.order = order;
+        }
+        private boolean isAbove(Entry other) {
+            if(layer != other.layer) return layer > other.layer;
+            return order > other.order;
+        }
+    }
+
+    private IdentityHashMap<AutomatonComponent,Entry> entries
+        = new IdentityHashMap<AutomatonComponent,Entry>();
+    private HashMap<Long,ArrayList<Entry>> cells
+        = new HashMap<Long,ArrayList<Entry>>();
+    private ArrayList<Rectangle> regions = new ArrayList<Rectangle>();
+    private ArrayList<Entry> stale = new ArrayList<Entry>();
+    private long next_order = 0;
+    private Rectangle box = new Rectangle();
+
+    public void add(AutomatonComponent comp, int layer) {
+        Entry entry = new Entry(comp, layer, next_order++);
+        entries.put(comp, entry);
+        markStale(entry);
+    }
+    public void remove(AutomatonComponent comp) {
+        Entry entry = entries.remove(comp);
+        if(entry != null) unplace(entry);
+    }
+    public void invalidate(AutomatonComponent comp) {
+        Entry entry = entries.get(comp);
+        if(entry != null) markStale(entry);
+    }
+
+    // Returns the cached bounds of the given component, or null if it
+    // is not in the index.
+    public Rectangle getBounds(AutomatonComponent comp, Graphics g) {
+        if(!stale.isEmpty()) update(g);
+        Entry entry = entries.get(comp);
+        return entry == null ? null : entry.bounds;
+    }
+
+    // Returns the topmost component of the given layer (or of any layer)
+    // containing the point, or null if there is none.
+    public AutomatonComponent find(int x, int y, Graphics g, int layer) {
+        update(g);
+        Entry best = null;
+        ArrayList<Entry> cell = cells.get(Long.valueOf(key(cellOf(x), cellOf(y))));
+        if(cell != null) best = findIn(cell, best, x, y, g, layer);
+        return best == null ? null : best.comp;
+    }
+
+    private Entry findIn(ArrayList<Entry> list, Entry best,
+            int x, int y, Graphics g, int layer) {
+        for(int i = 0; i < list.size(); i++) {
+            Entry entry = list.get(i);
+            if(layer != ANY && entry.layer != layer) continue;
+            if(best != null && !entry.isAbove(best)) continue;
+            if(entry.bounds.contains(x, y) && entry.comp.isIn(x, y, g)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    private void markStale(Entry entry) {
+        if(!entry.stale) {
+            entry.stale = true;
+            stale.add(entry);
+        }
+    }
+    private void update(Graphics g) {
+        for(int i = 0; i < stale.size(); i++) {
+            Entry entry = stale.get(i);
+            entry.stale = false;
+            if(entries.get(entry.comp) != entry) continue; // removed
+            unplace(entry);
+            entry.comp.getBounds(box, g);
+            entry.bounds.setBounds(box);
+            entry.bounds.grow(SLACK, SLACK);
+            place(entry, g);
+        }
+        stale.clear();
+    }
+    private void place(Entry entry, Graphics g) {
+        Rectangle r = entry.bounds;
+        int x0 = cellOf(r.x);
+        int y0 = cellOf(r.y);
+        int x1 = cellOf(r.x + r.width);
+        int y1 = cellOf(r.y + r.height);
+        long[] keys;
+        int count;
+        if((long) (x1 - x0 + 1) * (y1 - y0 + 1) <= MAX_CELLS) {
+            keys = new long[(x1 - x0 + 1) * (y1 - y0 + 1)];
+            count = 0;
+            for(int cx = x0; cx <= x1; cx++) {
+                for(int cy = y0; cy <= y1; cy++) keys[count++] = key(cx, cy);
+            }
+        } else {
+            regions.clear();
+            entry.comp.getRegions(regions, CELL_SIZE, g);
+            keys = new long[Math.max(16, 4 * regions.size())];
+            count = 0;
+            for(int i = 0; i < regions.size(); i++) {
+                Rectangle region = regions.get(i);
+                region.grow(SLACK, SLACK);
+                region = region.intersection(r);
+                if(region.isEmpty()) continue;
+                for(int cx = cellOf(region.x); cx <= cellOf(region.x + region.width); cx++) {
+                    for(int cy = cellOf(region.y); cy <= cellOf(region.y + region.height); cy++) {
+                        if(count == keys.length) keys = Arrays.copyOf(keys, 2 * count);
+                        keys[count++] = key(cx, cy);
+                    }
+                }
+            }
+            // neighboring regions mostly share cells
+            Arrays.sort(keys, 0, count);
+            int unique = 0;
+            for(int i = 0; i < count; i++) {
+                if(unique == 0 || keys[i] != keys[unique - 1]) keys[unique++] = keys[i];
+            }
+            count = unique;
+        }
+
+        for(int i = 0; i < count; i++) {
+            Long k = Long.valueOf(keys[i]);
+            ArrayList<Entry> cell = cells.get(k);
+            if(cell == null) {
+                cell = new ArrayList<Entry>(4);
+                cells.put(k, cell);
+            }
+            cell.add(entry);
+        }
+        entry.keys = count == keys.length ? keys : Arrays.copyOf(keys, count);
+    }
+    private void unplace(Entry entry) {
+        if(entry.keys == null) return;
+        for(int i = 0; i < entry.keys.length; i++) {
+            Long k = Long.valueOf(entry.keys[i]);
+            ArrayList<Entry> cell = cells.get(k);
+            cell.remove(entry);
+            if(cell.isEmpty()) cells.remove(k);
+        }
+        entry.keys = null;
+    }
+
+    private static int cellOf(int coord) {
+        return Math.floorDiv(coord, CELL_SIZE);
+    }
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -9,6 +9,8 @@ import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JPopupMenu;
@@ -17,10 +19,14 @@ abstract class State extends AutomatonComponent {
     public static final int RADIUS = 20;
     public static final double INITARROW_LEN = 1.5 * Transition.ARROW_LEN;
 
+    private int id = -1;
     private int x = 0;
     private int y = 0;
     private boolean is_initial = false;
     private boolean is_final = false;
+    private ArrayList<Transition> outgoing = new ArrayList<Transition>();
+    private ArrayList<Transition> incoming = new ArrayList<Transition>();
+        // both kept by Automaton in the order of its transitions list
 
     public State(Automaton automaton) {
         super(automaton);
@@ -32,13 +38,17 @@ abstract class State extends AutomatonComponent {
     public void remove() { getAutomaton().removeState(this); }
 
     // accessor methods
+    public int getId() { return id; }
+    void setId(int value) { id = value; }
     public boolean isInitial() { return is_initial; }
     public void setInitial(boolean value) {
         if(is_initial != value) {
-            is_initial = value;
-            getAutomaton().invalidateBounds();
+            // expose before and after, since the arrow changes the bounds
             Canvas canvas = getAutomaton().getCanvas();
             if(canvas != null) expose(canvas.getGraphics());
+            is_initial = value;
+            getAutomaton().invalidateBounds(this);
+            if(canvas != null) expose(canvas.getGraphics());
         }
     }
     public boolean isFinal() { return is_final; }
@@ -49,13 +59,15 @@ abstract class State extends AutomatonComponent {
             if(canvas != null) expose(canvas.getGraphics());
         }
     }
+    List<Transition> getOutgoing() { return outgoing; }
+    List<Transition> getIncoming() { return incoming; }
     public boolean isCurrent() { return getAutomaton().getCurrent().contains(this); }
     public int getX() { return x; }
     public int getY() { return y; }
     public State move(int x, int y) {
         this.x = x;
         this.y = y;
-        getAutomaton().invalidateBounds();
+        getAutomaton().invalidateBounds(this);
         return this;
     }
 
@@ -183,8 +195,8 @@ abstract class State extends AutomatonComponent {
                 throw new IOException("Missing argument");
             }
             try {
-                x = Integer.parseInt(value.substring(0, sep));
-                y = Integer.parseInt(value.substring(sep + 1));
+                move(Integer.parseInt(value.substring(0, sep)),
+                    Integer.parseInt(value.substring(sep + 1)));
             } catch(NumberFormatException e) {
                 throw new IOException("Nonnumeric argument");
             }
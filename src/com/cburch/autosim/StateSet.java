@@ -4,90 +4,210 @@
 package com.cburch.autosim;
 
 import java.awt.Graphics;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
 
+// A set of states stored as a bitset over the dense ids that the
+// automaton assigns in addState().
 class StateSet {
     private Automaton automaton;
-    private LinkedList<State> states = new LinkedList<State>();
+    private long[] bits;
+    private int size = 0;
+
+    private class StateIterator implements Iterator<State> {
+        private int next = nextStateId(0);
+
+        public boolean hasNext() {
+            return next >= 0;
+        }
+        public State next() {
+            if(next < 0) throw new NoSuchElementException();
+            State ret = automaton.getState(next);
+            next = nextStateId(next + 1);
+            return ret;
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 
     public StateSet(Automaton automaton) {
         this.automaton = automaton;
+        this.bits = new long[(automaton.getStateIdCount() + 63) >> 6];
     }
-    
+    public StateSet(StateSet other) {
+        this.automaton = other.automaton;
+        this.bits = other.bits.clone();
+        this.size = other.size;
+    }
+
     public int size() {
-        return states.size();
+        return size;
     }
     public Iterator<State> iterator() {
-        return states.iterator();
+        return new StateIterator();
     }
     public boolean contains(State what) {
-        return states.contains(what);
+        return containsId(what.getId());
+    }
+    public boolean containsId(int id) {
+        int word = id >> 6;
+        return id >= 0 && word < bits.length
+            && (bits[word] & (1L << id)) != 0;
+    }
+    public boolean containsFinal() {
+        for(int id = nextStateId(0); id >= 0; id = nextStateId(id + 1)) {
+            if(automaton.getState(id).isFinal()) return true;
+        }
+        return false;
     }
     public void remove(State what) {
-        states.remove(what);
+        int id = what.getId();
+        int word = id >> 6;
+        if(id >= 0 && word < bits.length && (bits[word] & (1L << id)) != 0) {
+            bits[word] &= ~(1L << id);
+            --size;
+        }
     }
     public void add(State state) {
-        if(!states.contains(state)) {
-            states.add(state);
+        addId(state.getId());
+    }
+    public boolean addId(int id) {
+        int word = id >> 6;
+        if(word >= bits.length) {
+            long[] grown = new long[Math.max(word + 1, 2 * bits.length)];
+            System.arraycopy(bits, 0, grown, 0, bits.length);
+            bits = grown;
+        }
+        if((bits[word] & (1L << id)) != 0) return false;
+        bits[word] |= 1L << id;
+        ++size;
+        return true;
+    }
+    public void addAll(StateSet other) {
+        long[] src = other.bits;
+        if(src.length > bits.length) {
+            long[] grown = new long[src.length];
+            System.arraycopy(bits, 0, grown, 0, bits.length);
+            bits = grown;
         }
+        int count = 0;
+        for(int i = 0; i < src.length; i++) bits[i] |= src[i];
+        for(int i = 0; i < bits.length; i++) count += Long.bitCount(bits[i]);
+        size = count;
+    }
+    public void retainAll(StateSet other) {
+        long[] src = other.bits;
+        int count = 0;
+        for(int i = 0; i < bits.length; i++) {
+            bits[i] &= i < src.length ? src[i] : 0L;
+            count += Long.bitCount(bits[i]);
+        }
+        size = count;
+    }
+    // Returns the smallest id in the set that is at least from, or -1.
+    public int nextId(int from) {
+        int word = from >> 6;
+        if(from < 0 || word >= bits.length) return -1;
+        long cur = bits[word] & (-1L << from);
+        while(true) {
+            if(cur != 0) return (word << 6) + Long.numberOfTrailingZeros(cur);
+            if(++word >= bits.length) return -1;
+            cur = bits[word];
+        }
+    }
+    // As nextId(), but skips the ids of states removed from the automaton
+    // since they were added. Sets kept in the step history and its
+    // checkpoints can still hold such ids.
+    private int nextStateId(int from) {
+        int id = nextId(from);
+        while(id >= 0 && automaton.getState(id) == null) id = nextId(id + 1);
+        return id;
+    }
+    public boolean equals(Object other) {
+        if(!(other instanceof StateSet)) return false;
+        long[] a = bits;
+        long[] b = ((StateSet) other).bits;
+        int n = Math.max(a.length, b.length);
+        for(int i = 0; i < n; i++) {
+            long x = i < a.length ? a[i] : 0L;
+            long y = i < b.length ? b[i] : 0L;
+            if(x != y) return false;
+        }
+        return true;
+    }
+    // Stops at the last nonzero word, so that sets equal but for the
+    // length of bits hash alike.
+    public int hashCode() {
+        int n = bits.length;
+        while(n > 0 && bits[n - 1] == 0) --n;
+        long h = 0;
+        for(int i = 0; i < n; i++) {
+            h = h * 31 + bits[i];
+        }
+        return (int) (h ^ (h >>> 32));
     }
     public void expose(Graphics g) {
-        for(State state: states) {
-            state.expose(g);
+        for(int id = nextStateId(0); id >= 0; id = nextStateId(id + 1)) {
+            automaton.getState(id).expose(g);
         }
     }
+    // Returns the states reached on what, including EPSILON closure,
+    // without recording which transitions were traversed.
+    public StateSet step(char what) {
+        StateSet ret = new StateSet(automaton);
+        collect(what, ret, null);
+        automaton.addEpsilonClosure(ret);
+        return ret;
+    }
     public Object[] advance(char what) {
         StateSet ret = new StateSet(automaton);
-        StateSet used = new StateSet(automaton);
         LinkedList<Transition> traversed = new LinkedList<Transition>();
+        collect(what, ret, traversed);
+        automaton.addEpsilonClosure(ret);
 
-        if(what == Alphabet.EPSILON) {
-            for(State state : states) {
-                ret.add(state);
-            }
-        } else {
-            // find transitions for selected character
-            for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
-                Transition transition = it.next();
-                if(transition.transitsOn(what)
-                        && contains(transition.getSource())) {
-                    ret.add(transition.getDest());
-                    used.add(transition.getSource());
+        // record EPSILON transitions followed within the closure
+        HashSet<Transition> recorded = new HashSet<Transition>(traversed);
+        for(int id = ret.nextStateId(0); id >= 0; id = ret.nextStateId(id + 1)) {
+            for(Transition transition : automaton.getState(id).getOutgoing()) {
+                if(transition.transitsOn(Alphabet.EPSILON)
+                        && recorded.add(transition)) {
                     traversed.add(transition);
                 }
             }
+        }
+        return new Object[] { ret, traversed };
+    }
+    private void collect(char what, StateSet ret, LinkedList<Transition> traversed) {
+        if(what == Alphabet.EPSILON) {
+            ret.addAll(this);
+            return;
+        }
 
-            // handle ELSE transitions
-            for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
-                Transition transition = it.next();
-                if(transition.transitsOn(Alphabet.ELSE)
-                        && contains(transition.getSource())
-                        && !used.contains(transition.getSource())) {
+        for(int id = nextStateId(0); id >= 0; id = nextStateId(id + 1)) {
+            List<Transition> outgoing = automaton.getState(id).getOutgoing();
+
+            // find transitions for selected character
+            boolean used = false;
+            for(Transition transition : outgoing) {
+                if(transition.transitsOn(what)) {
                     ret.add(transition.getDest());
-                    traversed.add(transition);
+                    used = true;
+                    if(traversed != null) traversed.add(transition);
                 }
             }
-        }
 
-        // closure on EPSILON transitions
-        boolean changed = true;
-        while(changed) {
-            changed = false;
-            for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
-                Transition transition = it.next();
-                if(transition.transitsOn(Alphabet.EPSILON)
-                        && ret.contains(transition.getSource())) {
-                    if(!ret.contains(transition.getDest())) {
-                        ret.add(transition.getDest());
-                        changed = true;
-                    }
-                    if(!traversed.contains(transition)) {
-                        traversed.add(transition);
-                    }
+            // handle ELSE transitions
+            if(used) continue;
+            for(Transition transition : outgoing) {
+                if(transition.transitsOn(Alphabet.ELSE)) {
+                    ret.add(transition.getDest());
+                    if(traversed != null) traversed.add(transition);
                 }
             }
         }
-        return new Object[] { ret, traversed };
     }
 }
@@ -0,0 +1,381 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// The steps taken in a simulation, kept so that they can be undone.
+// Each step is recorded compactly in a ring of parallel arrays: the
+// current state's id, the head position and the few tape cells around
+// the head that the step may overwrite. Once the ring is full the oldest
+// steps are dropped. Steps within the ring are reached by undoing them.
+//
+// Steps before the ring are reached by replaying from a checkpoint. A
+// checkpoint holds the states and position in full but only the cells
+// changed since the checkpoint before it, which the steps recorded in
+// between name; the first holds every non-blank cell. Checkpoints are
+// taken every CHECKPOINT_INTERVAL steps to begin with. When there are
+// too many, or they hold more cells than twice the span of tape the run
+// has visited, every other one is merged into the next and the interval
+// doubles, so they stay spread over the whole run and memory stays in
+// proportion to the tape however long the run.
+class StepHistory {
+    public static final int CAPACITY = 1 << 16;
+    public static final int CHECKPOINT_INTERVAL = 1 << 10;
+    private static final int MAX_CHECKPOINTS = 64;
+    private static final int INITIAL_LENGTH = 256;
+
+    private static final int NO_STATE = -1;
+    private static final int MANY_STATES = -2; // stored in sets instead
+
+    static class Checkpoint {
+        private long step;
+        private StateSet states;
+        private int position;
+        private TapeContents contents;
+
+        private Checkpoint(long step, StateSet states, int position,
+                TapeContents contents) {
+            this.step = step;
+            this.states = states;
+            this.position = position;
+            this.contents = contents;
+        }
+
+        public long getStep() { return step; }
+        public StateSet getStates() { return new StateSet(states); }
+        public int getPosition() { return position; }
+        public TapeContents getContents() { return new TapeContents(contents); }
+    }
+
+    // A checkpoint as it is held: the cells are those changed since the
+    // previous one, in ascending order of position.
+    private static class Mark {
+        private long step;
+        private StateSet states;
+        private int position;
+        private int[] cells;
+        private char[] values;
+
+        private Mark(long step, StateSet states, int position,
+                int[] cells, char[] values) {
+            this.step = step;
+            this.states = new StateSet(states);
+            this.position = position;
+            this.cells = cells;
+            this.values = values;
+        }
+    }
+
+    private Automaton automaton;
+    private int offset; // first recorded cell, relative to the position
+    private int width;  // number of cells recorded per step
+
+    // The arrays grow to CAPACITY entries before the ring wraps around.
+    private int[] ids = new int[INITIAL_LENGTH];
+    private StateSet[] sets = null; // allocated at the first MANY_STATES
+    private int[] positions = new int[INITIAL_LENGTH];
+    private char[] cells;
+    private int end = 0;  // ring index after the newest step
+    private int size = 0; // steps held
+    private long step = 0; // steps taken since clear()
+    private ArrayList<Mark> marks = new ArrayList<Mark>();
+    private long interval = CHECKPOINT_INTERVAL;
+    private long mark_cells = 0; // cells held by all the marks
+    private int low = 0;  // span of positions the run has visited
+    private int high = -1;
+
+    // Each step will record the cells from offset to offset + width - 1,
+    // relative to the position given to add().
+    public StepHistory(Automaton automaton, int offset, int width) {
+        this.automaton = automaton;
+        this.offset = offset;
+        this.width = width;
+        this.cells = new char[INITIAL_LENGTH * width];
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+    public long getStep() { return step; }
+
+    public void clear() {
+        clearSteps();
+        step = 0;
+        marks.clear();
+        interval = CHECKPOINT_INTERVAL;
+        mark_cells = 0;
+        low = 0;
+        high = -1;
+    }
+
+    // Records the simulation as it is before a step: the current states,
+    // the position of the head (or cursor) and the cells around it.
+    public void add(StateSet current, int position, Tape tape) {
+        add(current, position, tape.getContents());
+    }
+    public void add(StateSet current, int position, TapeContents contents) {
+        if(isCheckpointDue()) addCheckpoint(current, position, contents);
+        int i = nextIndex();
+        if(current.size() == 0) {
+            ids[i] = NO_STATE;
+        } else if(current.size() == 1) {
+            ids[i] = current.nextId(0);
+        } else {
+            if(sets == null) sets = new StateSet[ids.length];
+            ids[i] = MANY_STATES;
+            sets[i] = current;
+        }
+        finishStep(i, position, contents);
+    }
+    // As add(), for a simulation whose only current state is given, or
+    // which has none if it is null. Replays use this to avoid building
+    // a StateSet for each step.
+    public void add(State state, int position, TapeContents contents) {
+        if(isCheckpointDue()) {
+            StateSet current = new StateSet(automaton);
+            if(state != null) current.add(state);
+            addCheckpoint(current, position, contents);
+        }
+        int i = nextIndex();
+        ids[i] = state == null ? NO_STATE : state.getId();
+        finishStep(i, position, contents);
+    }
+
+    // Counts steps that were taken without being recorded, as when
+    // replaying far ahead. The steps recorded before them can no longer
+    // be undone, since they no longer lead up to the current one.
+    public void skip(long count) {
+        clearSteps();
+        step += count;
+    }
+    // Undoes steps until the given step is the next to be taken, as if
+    // the run had only just reached it. Should the ring not reach back
+    // that far, only the checkpoints before that step are kept.
+    public void truncate(long target) {
+        while(size > 0 && step > target) removeLast();
+        if(step > target) {
+            step = target;
+            removeMarks();
+        }
+    }
+
+    // The newest step's states and position, as recorded by add().
+    public StateSet getLastStates() {
+        int i = last();
+        if(ids[i] == MANY_STATES) return sets[i];
+        StateSet ret = new StateSet(automaton);
+        if(ids[i] != NO_STATE) {
+            State state = automaton.getState(ids[i]);
+            if(state != null) ret.add(state);
+        }
+        return ret;
+    }
+    public int getLastPosition() {
+        return positions[last()];
+    }
+    // Writes back the cells that the newest step recorded.
+    public void restoreLastCells(Tape tape) {
+        int i = last();
+        int position = positions[i];
+        for(int k = 0; k < width; k++) {
+            tape.write(position + offset + k, cells[i * width + k]);
+        }
+    }
+    public void removeLast() {
+        int i = last();
+        if(sets != null) sets[i] = null;
+        end = i;
+        --size;
+        --step;
+        removeMarks();
+    }
+
+    // Returns the latest checkpoint at or before the given step, or null
+    // if none is held. Its cells are rebuilt from the first checkpoint,
+    // taking time in proportion to the cells held.
+    public Checkpoint getCheckpoint(long target) {
+        int k = marks.size() - 1;
+        while(k >= 0 && marks.get(k).step > target) --k;
+        if(k < 0) return null;
+        Mark mark = marks.get(k);
+        return new Checkpoint(mark.step, mark.states, mark.position,
+            rebuild(k));
+    }
+
+    private boolean isCheckpointDue() {
+        return marks.isEmpty()
+            || step - marks.get(marks.size() - 1).step >= interval;
+    }
+    private void addCheckpoint(StateSet current, int position,
+            TapeContents contents) {
+        int[] cells;
+        if(marks.isEmpty()) {
+            cells = span(contents.getMinimumPosition(),
+                contents.getMaximumPosition(), new TapeContents(), contents);
+        } else {
+            Mark prev = marks.get(marks.size() - 1);
+            if(step - prev.step <= size) {
+                cells = changedCells(prev.step, position);
+            } else {
+                // the steps since are not all recorded, as after skip()
+                TapeContents old = rebuild(marks.size() - 1);
+                cells = span(Math.min(old.getMinimumPosition(), contents.getMinimumPosition()),
+                    Math.max(old.getMaximumPosition(), contents.getMaximumPosition()),
+                    old, contents);
+            }
+        }
+        char[] values = new char[cells.length];
+        for(int k = 0; k < cells.length; k++) {
+            values[k] = contents.get(cells[k]);
+            visit(cells[k]);
+        }
+        marks.add(new Mark(step, current, position, cells, values));
+        mark_cells += cells.length;
+
+        while(marks.size() > 2 && (marks.size() > MAX_CHECKPOINTS
+                || mark_cells > 2L * (high - low + 1) + (long) CAPACITY * width)) {
+            thin();
+        }
+    }
+    // Returns the positions the steps since the given one may have
+    // written: those each step recorded, and those between its position
+    // and the next, which a DPDA crosses in pushing or popping several
+    // symbols.
+    private int[] changedCells(long since, int position) {
+        int[] ret = new int[16];
+        int count = 0;
+        int next = position;
+        int i = end;
+        for(long s = step - 1; s >= since; s--) {
+            i = (i == 0 ? ids.length : i) - 1;
+            int pos = positions[i];
+            int first = Math.min(pos, next) + offset;
+            int last = Math.max(pos, next) + offset + width - 1;
+            if(count + last - first + 1 > ret.length) {
+                ret = Arrays.copyOf(ret, Math.max(2 * ret.length, count + last - first + 1));
+            }
+            for(int p = first; p <= last; p++) ret[count++] = p;
+            next = pos;
+        }
+        Arrays.sort(ret, 0, count);
+        int unique = 0;
+        for(int k = 0; k < count; k++) {
+            if(unique == 0 || ret[k] != ret[unique - 1]) ret[unique++] = ret[k];
+        }
+        return Arrays.copyOf(ret, unique);
+    }
+    // Returns the positions from first through last whose cells differ
+    // between the two contents.
+    private static int[] span(int first, int last, TapeContents from,
+            TapeContents to) {
+        int count = 0;
+        for(int p = first; p <= last; p++) {
+            if(from.get(p) != to.get(p)) ++count;
+        }
+        int[] ret = new int[count];
+        count = 0;
+        for(int p = first; p <= last; p++) {
+            if(from.get(p) != to.get(p)) ret[count++] = p;
+        }
+        return ret;
+    }
+    private void visit(int position) {
+        if(high < low) {
+            low = position;
+            high = position;
+        } else if(position < low) {
+            low = position;
+        } else if(position > high) {
+            high = position;
+        }
+    }
+    // Rebuilds the cells as of the given mark.
+    private TapeContents rebuild(int k) {
+        TapeContents ret = new TapeContents();
+        for(int j = 0; j <= k; j++) {
+            Mark mark = marks.get(j);
+            for(int c = 0; c < mark.cells.length; c++) {
+                ret.set(mark.cells[c], mark.values[c]);
+            }
+        }
+        return ret;
+    }
+    // Merges every other mark after the first into the one after it,
+    // keeping the newest.
+    private void thin() {
+        ArrayList<Mark> kept = new ArrayList<Mark>(marks.size() / 2 + 2);
+        kept.add(marks.get(0));
+        mark_cells = marks.get(0).cells.length;
+        int j = 1;
+        for(; j + 1 < marks.size(); j += 2) {
+            Mark merged = merge(marks.get(j), marks.get(j + 1));
+            kept.add(merged);
+            mark_cells += merged.cells.length;
+        }
+        if(j < marks.size()) {
+            kept.add(marks.get(j));
+            mark_cells += marks.get(j).cells.length;
+        }
+        marks = kept;
+        interval *= 2;
+    }
+    // Folds the earlier mark's cells into the later one's, which win.
+    private static Mark merge(Mark earlier, Mark later) {
+        int[] cells = new int[earlier.cells.length + later.cells.length];
+        char[] values = new char[cells.length];
+        int a = 0;
+        int b = 0;
+        int count = 0;
+        while(a < earlier.cells.length || b < later.cells.length) {
+            if(b == later.cells.length || (a < earlier.cells.length
+                    && earlier.cells[a] < later.cells[b])) {
+                cells[count] = earlier.cells[a];
+                values[count++] = earlier.values[a++];
+            } else {
+                if(a < earlier.cells.length && earlier.cells[a] == later.cells[b]) ++a;
+                cells[count] = later.cells[b];
+                values[count++] = later.values[b++];
+            }
+        }
+        later.cells = Arrays.copyOf(cells, count);
+        later.values = Arrays.copyOf(values, count);
+        return later;
+    }
+    private void removeMarks() {
+        while(!marks.isEmpty() && marks.get(marks.size() - 1).step >= step) {
+            mark_cells -= marks.remove(marks.size() - 1).cells.length;
+        }
+    }
+    private int nextIndex() {
+        if(end == ids.length && ids.length < CAPACITY) grow();
+        if(sets != null) sets[end] = null;
+        return end;
+    }
+    private void finishStep(int i, int position, TapeContents contents) {
+        positions[i] = position;
+        for(int k = 0; k < width; k++) {
+            cells[i * width + k] = contents.get(position + offset + k);
+        }
+        end = i + 1 == CAPACITY ? 0 : i + 1;
+        if(size < CAPACITY) ++size;
+        ++step;
+    }
+    private void clearSteps() {
+        if(sets != null) Arrays.fill(sets, null);
+        end = 0;
+        size = 0;
+    }
+    private int last() {
+        if(size == 0) throw new IllegalStateException("history is empty");
+        return end == 0 ? ids.length - 1 : end - 1;
+    }
+    private void grow() {
+        int length = Math.min(2 * ids.length, CAPACITY);
+        ids = Arrays.copyOf(ids, length);
+        positions = Arrays.copyOf(positions, length);
+        cells = Arrays.copyOf(cells, length * width);
+        if(sets != null) sets = Arrays.copyOf(sets, length);
+    }
+}
@@ -0,0 +1,138 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Converts an NFA into an equivalent DFA by subset construction. The
+// frontier of newly discovered subsets is expanded one breadth-first
+// level at a time, with each level split across a fork/join pool and
+// subsets interned in a concurrent table. States are numbered in a
+// final single-threaded pass so that the result does not depend on
+// thread scheduling.
+class SubsetConstruction {
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private static class Node {
+        StateSet set;
+        Node[] next;
+        int row = -1;
+
+        Node(StateSet set) { this.set = set; }
+    }
+
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private ArrayList<Node> frontier;
+        private int start;
+        private int end;
+
+        Expand(ArrayList<Node> frontier, int start, int end) {
+            this.frontier = frontier;
+            this.start = start;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if(end - start <= SPLIT_THRESHOLD) {
+                for(int i = start; i < end; i++) expand(frontier.get(i));
+            } else {
+                int mid = (start + end) >>> 1;
+                invokeAll(new Expand(frontier, start, mid),
+                    new Expand(frontier, mid, end));
+            }
+        }
+    }
+
+    private NFATable nfa;
+    private ForkJoinPool pool;
+    private ConcurrentHashMap<StateSet,Node> nodes
+        = new ConcurrentHashMap<StateSet,Node>();
+    private ConcurrentLinkedQueue<Node> discovered
+        = new ConcurrentLinkedQueue<Node>();
+
+    public SubsetConstruction(NFA automaton) {
+        this(automaton, ForkJoinPool.commonPool());
+    }
+    public SubsetConstruction(NFA automaton, ForkJoinPool pool) {
+        this.nfa = new NFATable(automaton);
+        this.pool = pool;
+    }
+
+    public static DFA convert(NFA automaton) {
+        return new SubsetConstruction(automaton).run().createAutomaton();
+    }
+
+    public DFATable run() {
+        nodes.clear();
+        discovered.clear();
+        Node initial = intern(nfa.getInitial());
+
+        ArrayList<Node> frontier = new ArrayList<Node>(discovered);
+        discovered.clear();
+        while(frontier.size() > 0) {
+            pool.invoke(new Expand(frontier, 0, frontier.size()));
+            frontier = new ArrayList<Node>(discovered);
+            discovered.clear();
+        }
+
+        // number reachable non-empty subsets breadth-first; the empty
+        // subset becomes DEAD
+        int width = nfa.getWidth();
+        ArrayList<Node> order = new ArrayList<Node>(nodes.size());
+        if(initial.set.size() > 0) {
+            initial.row = 0;
+            order.add(initial);
+        }
+        for(int i = 0; i < order.size(); i++) {
+            Node[] next = order.get(i).next;
+            for(int col = 0; col < width; col++) {
+                Node dst = next[col];
+                if(dst.row < 0 && dst.set.size() > 0) {
+                    dst.row = order.size();
+                    order.add(dst);
+                }
+            }
+        }
+
+        int[] table = new int[order.size() * width];
+        boolean[] accepting = new boolean[order.size()];
+        for(int row = 0; row < order.size(); row++) {
+            Node node = order.get(row);
+            accepting[row] = node.set.containsFinal();
+            for(int col = 0; col < width; col++) {
+                Node dst = node.next[col];
+                table[row * width + col] = dst.row < 0 ? DFATable.DEAD : dst.row;
+            }
+        }
+        return new DFATable(nfa.getSymbols(), table, accepting,
+            order.size() > 0 ? 0 : DFATable.DEAD);
+    }
+
+    private void expand(Node node) {
+        int width = nfa.getWidth();
+        Node[] next = new Node[width];
+        for(int col = 0; col < width; col++) {
+            next[col] = intern(nfa.move(node.set, col));
+        }
+        node.next = next;
+    }
+    private Node intern(StateSet set) {
+        Node ret = nodes.get(set);
+        if(ret == null) {
+            Node fresh = new Node(set);
+            ret = nodes.putIfAbsent(set, fresh);
+            if(ret == null) {
+                ret = fresh;
+                discovered.add(fresh);
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,173 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.Arrays;
+
+// A set of input symbols, stored as a bitset over a dense symbol index
+// shared by the whole program. EPSILON, ELSE and BLANK hold the first
+// indices; any other character gets the next free index the first time
+// a set stores it, so the sets in use stay a word or two long however
+// far apart their characters are. Looking up a character that no set
+// has stored finds no index, and so is in no set.
+//
+// The index only ever grows: its arrays are appended to under a lock,
+// and each new character publishes a Registry naming how many entries
+// are complete, so simulation threads can look characters up without
+// locking.
+//
+// A set also remembers the order its symbols were added, which its
+// labels and saved files keep.
+class SymbolSet {
+    private static final String RESERVED = "" + Alphabet.ELSE
+        + Alphabet.EPSILON + Alphabet.BLANK; // in index order
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int[] EMPTY_PAGE = new int[PAGE_SIZE];
+        // shared by every high byte with no symbols; never written
+
+    // A view of the index as of one registration. The arrays are shared
+    // with later views, which only write past this one's size; the final
+    // fields make every entry below it visible to any thread that reads
+    // the view, and entries at or past it are treated as absent.
+    private static class Registry {
+        private final char[] symbols; // index -> symbol
+        private final int[][] pages;  // symbol -> index + 1, or 0
+        private final int size;
+
+        private Registry(char[] symbols, int[][] pages, int size) {
+            this.symbols = symbols;
+            this.pages = pages;
+            this.size = size;
+        }
+        private int indexOf(char c) {
+            int ret = pages[c >>> PAGE_BITS][c & (PAGE_SIZE - 1)] - 1;
+            return ret < size ? ret : -1;
+        }
+    }
+
+    private static volatile Registry registry = createRegistry();
+
+    private static Registry createRegistry() {
+        int[][] pages = new int[1 << (16 - PAGE_BITS)][];
+        Arrays.fill(pages, EMPTY_PAGE);
+        Registry ret = new Registry(new char[64], pages, 0);
+        for(int i = 0; i < RESERVED.length(); i++) {
+            ret = append(ret, RESERVED.charAt(i));
+        }
+        return ret;
+    }
+    // Returns the index of the character, or -1 if it has none yet.
+    public static int indexOf(char c) {
+        return registry.indexOf(c);
+    }
+    public static char charAt(int index) {
+        return registry.symbols[index];
+    }
+    private static int register(char c) {
+        int ret = registry.indexOf(c);
+        if(ret >= 0) return ret;
+        synchronized(SymbolSet.class) {
+            Registry current = registry;
+            ret = current.indexOf(c);
+            if(ret >= 0) return ret;
+            registry = append(current, c);
+            return current.size;
+        }
+    }
+    private static Registry append(Registry from, char c) {
+        char[] symbols = from.symbols;
+        int size = from.size;
+        if(size == symbols.length) symbols = Arrays.copyOf(symbols, 2 * size);
+        symbols[size] = c;
+        int[] page = from.pages[c >>> PAGE_BITS];
+        if(page == EMPTY_PAGE) {
+            page = new int[PAGE_SIZE];
+            from.pages[c >>> PAGE_BITS] = page;
+        }
+        page[c & (PAGE_SIZE - 1)] = size + 1;
+        return new Registry(symbols, from.pages, size + 1);
+    }
+
+    private long[] bits = new long[1];
+    private int size = 0;
+    private char[] order = new char[4];
+        // the symbols as added, possibly with ones since removed or added
+        // again later; compact() drops those
+    private int order_length = 0;
+    private String text = ""; // toString(), or null if not yet built
+
+    public SymbolSet() { }
+    public SymbolSet(String what) {
+        for(int i = 0; i < what.length(); i++) add(what.charAt(i));
+    }
+
+    public boolean contains(char c) {
+        int index = indexOf(c);
+        if(index < 0) return false;
+        int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    // Adds the character, returning false if it was already present.
+    public boolean add(char c) {
+        int index = register(c);
+        int word = index >>> 6;
+        if(word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(word + 1, 2 * bits.length));
+        }
+        if((bits[word] & (1L << index)) != 0) return false;
+        bits[word] |= 1L << index;
+        ++size;
+        if(order_length == order.length) {
+            if(order_length > 2 * size) compact();
+            else order = Arrays.copyOf(order, 2 * order_length);
+        }
+        order[order_length++] = c;
+        text = null;
+        return true;
+    }
+    // Removes the character, returning false if it was not present.
+    public boolean remove(char c) {
+        if(!contains(c)) return false;
+        int index = indexOf(c);
+        bits[index >>> 6] &= ~(1L << index);
+        --size;
+        text = null;
+        return true;
+    }
+
+    // Returns the symbols in the order they were added.
+    public String toString() {
+        if(text == null) {
+            compact();
+            text = new String(order, 0, order_length);
+        }
+        return text;
+    }
+
+    // Keeps only the latest addition of each symbol still present.
+    private void compact() {
+        if(order_length == size) return;
+        long[] seen = new long[bits.length];
+        int kept = order.length;
+        char[] ret = new char[order.length];
+        for(int i = order_length - 1; i >= 0; i--) {
+            char c = order[i];
+            int index = indexOf(c);
+            int word = index >>> 6;
+            long bit = 1L << index;
+            if((bits[word] & bit) != 0 && (seen[word] & bit) == 0) {
+                seen[word] |= bit;
+                ret[--kept] = c;
+            }
+        }
+        order_length = ret.length - kept;
+        System.arraycopy(ret, kept, ret, 0, order_length);
+        order = ret;
+    }
+}
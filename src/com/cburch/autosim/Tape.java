@@ -15,7 +15,6 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 
@@ -29,42 +28,6 @@ class Tape extends JPanel {
     private static final int BLANK_WIDTH  = 40; // width of each square
     private static final int BLANKS_SHOW =  2; // extra blanks on each side
 
-    private static class Contents {
-        ArrayList<Character> positives = new ArrayList<Character>();
-        ArrayList<Character> negatives = new ArrayList<Character>();
-        Character blank = new Character(Alphabet.BLANK);
-
-        public Contents() { }
-
-        public char get(int position) {
-            ArrayList<Character> which = position < 0 ? negatives : positives;
-            if(position < 0) position = -position;
-            if(position >= which.size()) return Alphabet.BLANK;
-            Character ret = which.get(position);
-            return ret == null ? Alphabet.BLANK : ret.charValue();
-        }
-        public void set(int position, char value) {
-            ArrayList<Character> which = position < 0 ? negatives : positives;
-            if(position < 0) position = -position;
-            while(which.size() <= position) which.add(blank);
-            which.set(position, value);
-        }
-        public int getMaximumPosition() {
-            for(int i = positives.size() - 1; i >= 0; i--) {
-                Character val = positives.get(i);
-                if(val != null && !val.equals(blank)) return i;
-            }
-            return 0;
-        }
-        public int getMinimumPosition() {
-            for(int i = negatives.size() - 1; i >= 0; i--) {
-                Character val = negatives.get(i);
-                if(val != null && !val.equals(blank)) return -i;
-            }
-            return 0;
-        }
-    }
-
     private class Representation extends JPanel {
         private class Listener implements FocusListener, MouseListener,
                 KeyListener, ComponentListener {
@@ -265,7 +228,7 @@ class Tape extends JPanel {
 
     // private variables
     private LinkedList<TapeListener> listeners = new LinkedList<TapeListener>();
-    private Contents contents = new Contents();
+    private TapeContents contents = new TapeContents();
     private int cursor = 0;
     private int head = 0;
     private double head_draw = 0;
@@ -301,7 +264,7 @@ class Tape extends JPanel {
         reset();
     }
     public void reset() {
-        contents = new Contents();
+        contents = new TapeContents();
         representation.computeSize();
         setHeadPosition(0);
         repaint();
@@ -323,6 +286,16 @@ class Tape extends JPanel {
     public char read(int pos) {
         return contents.get(pos);
     }
+    public TapeContents copyContents() {
+        return new TapeContents(contents);
+    }
+    TapeContents getContents() { return contents; } // not to be modified
+    // Replaces every cell at once, as when jumping to another step.
+    public void setContents(TapeContents value) {
+        contents = value;
+        representation.computeSize();
+        repaint();
+    }
 
     public int getHeadPosition() { return head; }
     public void setHeadPosition(int value) {
@@ -0,0 +1,78 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.Arrays;
+
+// The cells of a tape, kept in two growable char arrays: positives[i]
+// holds position i and negatives[i] holds position -i. The outermost
+// non-blank positions are tracked as cells are written, so that the
+// extents are available without scanning.
+class TapeContents {
+    private char[] positives = newCells(16);
+    private char[] negatives = newCells(16);
+    private int max = 0; // largest non-blank position, or 0
+    private int min = 0; // smallest non-blank position, or 0
+
+    public TapeContents() { }
+    public TapeContents(TapeContents other) {
+        positives = other.positives.clone();
+        negatives = other.negatives.clone();
+        max = other.max;
+        min = other.min;
+    }
+
+    private static char[] newCells(int length) {
+        char[] ret = new char[length];
+        Arrays.fill(ret, Alphabet.BLANK);
+        return ret;
+    }
+    private static char[] grow(char[] cells, int index) {
+        int length = cells.length;
+        while(length <= index) length *= 2;
+        char[] ret = newCells(length);
+        System.arraycopy(cells, 0, ret, 0, cells.length);
+        return ret;
+    }
+
+    public char get(int position) {
+        if(position >= 0) {
+            return position < positives.length ? positives[position] : Alphabet.BLANK;
+        } else {
+            return -position < negatives.length ? negatives[-position] : Alphabet.BLANK;
+        }
+    }
+    public void set(int position, char value) {
+        if(position >= 0) {
+            if(position >= positives.length) {
+                if(value == Alphabet.BLANK) return;
+                positives = grow(positives, position);
+            }
+            positives[position] = value;
+            if(value != Alphabet.BLANK) {
+                if(position > max) max = position;
+            } else if(position == max) {
+                while(max > 0 && positives[max] == Alphabet.BLANK) --max;
+            }
+        } else {
+            int index = -position;
+            if(index >= negatives.length) {
+                if(value == Alphabet.BLANK) return;
+                negatives = grow(negatives, index);
+            }
+            negatives[index] = value;
+            if(value != Alphabet.BLANK) {
+                if(position < min) min = position;
+            } else if(position == min) {
+                while(min < 0 && negatives[-min] == Alphabet.BLANK) ++min;
+            }
+        }
+    }
+    public int getMaximumPosition() {
+        return max;
+    }
+    public int getMinimumPosition() {
+        return min;
+    }
+}
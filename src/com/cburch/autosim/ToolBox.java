@@ -15,6 +15,7 @@ import java.awt.event.MouseListener;
 import javax.swing.ButtonGroup;
 import javax.swing.Icon;
 import javax.swing.JButton;
+import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JToolBar;
@@ -297,6 +298,40 @@ class ToolBox extends JToolBar {
         }
     }
 
+    private static class ButtonJump extends SimButton {
+        private static final long serialVersionUID = 1L;
+
+        public ButtonJump(Canvas canvas, Tape tape) {
+            super(canvas, tape);
+            setToolTipText("Jump to a step of the simulation");
+        }
+
+        public void select() {
+            Automaton automaton = getCanvas().getAutomaton();
+            String value = JOptionPane.showInputDialog(this, "Jump to step:",
+                "" + automaton.getHistory().getStep());
+            if(value == null) return;
+            try {
+                automaton.doJumpTo(Long.parseLong(value.trim()));
+            } catch(NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "The step must be a number.");
+            }
+        }
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setColor(Color.green);
+            int[] xp = { x + 2, x +  2, x + 10 };
+            int[] yp = { y + 4, y + 16, y + 10 };
+            g.fillPolygon(xp, yp, 3);
+            g.setColor(Color.black);
+            g.drawPolygon(xp, yp, 3);
+            g.setColor(Color.green);
+            xp = new int[] { x + 10, x + 10, x + 18 };
+            g.fillPolygon(xp, yp, 3);
+            g.setColor(Color.black);
+            g.drawPolygon(xp, yp, 3);
+        }
+    }
+
     private static class ButtonReset extends SimButton {
         public ButtonReset(Canvas canvas, Tape tape) {
             super(canvas, tape);
@@ -329,6 +364,7 @@ class ToolBox extends JToolBar {
     private ButtonPause b_pause;
     private ButtonStep b_step;
     private ButtonBackStep b_back;
+    private ButtonJump b_jump;
     private ButtonReset b_reset;
 
     public ToolBox(Canvas canvas, Tape tape) {
@@ -342,6 +378,7 @@ class ToolBox extends JToolBar {
         add(b_pause = new ButtonPause(canvas, tape));
         add(b_step  = new ButtonStep(canvas, tape));
         add(b_back  = new ButtonBackStep(canvas, tape));
+        add(b_jump  = new ButtonJump(canvas, tape));
         add(b_reset = new ButtonReset(canvas, tape));
     }
 
@@ -356,6 +393,10 @@ class ToolBox extends JToolBar {
         b_back.setVisible(value);
         b_step.setVisible(value);
         b_pause.setVisible(value);
+        b_jump.setVisible(value);
+    }
+    public void setJumpVisible(boolean value) {
+        b_jump.setVisible(value);
     }
 
     public void selectButton(ToolButton what) {
@@ -20,8 +20,10 @@ class ToolState extends Tool {
         current = getCanvas().getAutomaton().findState(x, y, g);
         if(current != null) {
             current.expose(g);
+            getCanvas().getAutomaton().exposeConnections(g, current);
             current.move(x, y);
             current.expose(g);
+            getCanvas().getAutomaton().exposeConnections(g, current);
         } else {
             current = getCanvas().getAutomaton().addState().move(x, y);
             if(getCanvas().getAutomaton().getInitialStates().size() == 0) {
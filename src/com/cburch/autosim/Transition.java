@@ -10,6 +10,7 @@ import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.util.List;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenuItem;
@@ -43,14 +44,17 @@ abstract class Transition extends AutomatonComponent
 
     private State src = null;
     private State dst = null;
-    private String transits = "";
+    private SymbolSet transits = new SymbolSet();
     private double offset_theta = DEFAULT_OFFSET_THETA;
     private Label label = new Label(this);
 
-    private Rectangle bounds; // bounding box
-
-    private int start_x, start_y, end_x, end_y; // this is for memory
-    private double old_theta;
+    // The geometry below is derived from the endpoints and offset_theta,
+    // and is recomputed only after invalidateGeometry(); the label box
+    // and full bounds are likewise kept until the label changes.
+    private boolean geometry_valid = false;
+    private Rectangle bounds; // bounding box of arc and arrow
+    private Rectangle label_box = null;
+    private Rectangle full_bounds = null; // bounds and label_box together
 
     private double cx; // information about arc
     private double cy;
@@ -104,11 +108,23 @@ abstract class Transition extends AutomatonComponent
 
     public State getSource() { return src; }
     public State getDest() { return dst; }
+    public double getOffsetTheta() { return offset_theta; }
+    public void setOffsetTheta(double value) {
+        offset_theta = value;
+        invalidateGeometry();
+        getAutomaton().invalidateBounds(this);
+    }
+    // Called when an endpoint moves.
+    void invalidateGeometry() {
+        geometry_valid = false;
+        label_box = null;
+        full_bounds = null;
+    }
     public boolean transitsOn(char what) {
-        return transits.indexOf(what) >= 0;
+        return transits.contains(what);
     }
     public boolean canTransit() {
-        return !transits.equals("");
+        return !transits.isEmpty();
     }
 
     public void setCursorExists(boolean flag) {
@@ -119,6 +135,7 @@ abstract class Transition extends AutomatonComponent
     }
     public void setCursorProgress(double fraction) {
         cursor_progress = fraction;
+        computeCircle();
 
         int old_x = cursor_x;
         int old_y = cursor_y;
@@ -131,6 +148,7 @@ abstract class Transition extends AutomatonComponent
         cursor_x = (int) (cx + r * Math.cos(cursor_angle) - CURSOR_R);
         cursor_y = (int) (cy - r * Math.sin(cursor_angle) - CURSOR_R);
         int w = 2 * CURSOR_R + 4;
+        getAutomaton().invalidateBounds(this);
         getAutomaton().getCanvas().expose(old_x - 2, old_y - 2, w, w);
         if(cursor_exists) {
             getAutomaton().getCanvas().expose(cursor_x - 2, cursor_y - 2, w, w);
@@ -141,6 +159,11 @@ abstract class Transition extends AutomatonComponent
     public int getLabelY(Label which) { return texty; }
     public int getLabelHAlign(Label which) { return halign; }
     public int getLabelVAlign(Label which) { return valign; }
+    public void labelChanged(Label which) {
+        label_box = null;
+        full_bounds = null;
+        getAutomaton().invalidateBounds(this);
+    }
     protected void setLabelText() {
         Canvas canvas = getAutomaton().getCanvas();
         if(canvas != null) label.expose(canvas, canvas.getGraphics());
@@ -148,13 +171,14 @@ abstract class Transition extends AutomatonComponent
         if(canvas != null) label.expose(canvas, canvas.getGraphics());
     }
     public String determineLabelText() {
-        if(transits == null || transits.equals("")) {
+        if(transits.isEmpty()) {
             return "none";
         } else {
             StringBuffer ret = new StringBuffer("");
-            for(int i = 0; i < transits.length(); i++) {
+            String symbols = transits.toString();
+            for(int i = 0; i < symbols.length(); i++) {
                 if(i > 0) ret.append(",");
-                char c = transits.charAt(i);
+                char c = symbols.charAt(i);
                 if(c == Alphabet.BLANK) ret.append("_");
                 else ret.append(Alphabet.toString(c));
             }
@@ -163,17 +187,20 @@ abstract class Transition extends AutomatonComponent
     }
 
     public abstract boolean canBeTransit(char what);
+    void setTransits(String value) {
+        transits = new SymbolSet(value);
+        getAutomaton().invalidateTransitions();
+        setLabelText();
+    }
     private void addTransit(char c) {
-        if(!transitsOn(c)) {
-            transits = transits + new Character(c).toString();
+        if(transits.add(c)) {
+            getAutomaton().invalidateTransitions();
             setLabelText();
         }
     }
     private void removeTransit(char c) {
-        int pos = transits.indexOf(c);
-        if(pos >= 0) {
-            transits = transits.substring(0, pos)
-                + transits.substring(pos + 1);
+        if(transits.remove(c)) {
+            getAutomaton().invalidateTransitions();
             setLabelText();
         }
     }
@@ -193,15 +220,56 @@ abstract class Transition extends AutomatonComponent
     }
 
     public Rectangle getBounds(Rectangle rect, Graphics g) {
-        computeCircle();
-        rect.setBounds(bounds);
-        label.addToBounds(rect, g);
+        if(full_bounds == null) {
+            computeCircle();
+            full_bounds = new Rectangle(bounds);
+            if(label.getText().length() > 0) {
+                full_bounds.add(getLabelBox(g));
+            }
+        }
+        rect.setBounds(full_bounds);
+        if(cursor_exists) {
+            rect.add(new Rectangle(cursor_x - 2, cursor_y - 2,
+                2 * CURSOR_R + 4, 2 * CURSOR_R + 4));
+        }
         return rect;
     }
+    private Rectangle getLabelBox(Graphics g) {
+        if(label_box == null) {
+            computeCircle();
+            label_box = label.getBounds(g);
+        }
+        return label_box;
+    }
+    // Covers the label box and the arc with short pieces, each grown by
+    // isIn()'s tolerance and by how far the arc bows from the chord
+    // between the ends of the piece. A straight line keeps its bounding
+    // box, since isIn() tests it against the circle last computed.
+    public void getRegions(List<Rectangle> regions, int size, Graphics g) {
+        computeCircle();
+        if(arcwidth == 0) {
+            super.getRegions(regions, size, g);
+            return;
+        }
+        regions.add(new Rectangle(getLabelBox(g)));
+        Rectangle piece;
+        int steps = Math.max(1, (int) Math.ceil(Math.abs(alength) * r / size));
+        double step = alength / steps;
+        int bow = (int) Math.ceil(r * (1.0 - Math.cos(step / 2.0))) + 4;
+        int x = (int) Math.round(cx + r * Math.cos(astart));
+        int y = (int) Math.round(cy - r * Math.sin(astart));
+        for(int i = 1; i <= steps; i++) {
+            piece = new Rectangle(x, y, 1, 1);
+            x = (int) Math.round(cx + r * Math.cos(astart + i * step));
+            y = (int) Math.round(cy - r * Math.sin(astart + i * step));
+            piece.add(x, y);
+            piece.grow(bow, bow);
+            regions.add(piece);
+        }
+    }
     public boolean isIn(int qx, int qy, Graphics g) {
         computeCircle();
-        Rectangle labrect = label.getBounds(g);
-        if(labrect.contains(qx, qy)) return true;
+        if(getLabelBox(g).contains(qx, qy)) return true;
 
         double distr = (qx - cx) * (qx - cx) + (qy - cy) * (qy - cy);
         double dist = Math.abs(Math.sqrt(distr) - r);
@@ -221,7 +289,8 @@ abstract class Transition extends AutomatonComponent
         // this routine just finds the correct value of offset_theta
         // to use and then passing control onto computeCircle() to
         // compute the actual parameters
-        getAutomaton().invalidateBounds();
+        invalidateGeometry();
+        getAutomaton().invalidateBounds(this);
 
         if(src == dst) {
             double x0 = (double) src.getX();
@@ -292,19 +361,8 @@ abstract class Transition extends AutomatonComponent
 
     private void computeCircle() {
         if(src == null || dst == null) return;
-
-        if(src.getX() == start_x
-                && src.getY() == start_y
-                && dst.getX() == end_x
-                && dst.getY() == end_y
-                && old_theta == offset_theta) {
-            return;
-        }
-        start_x = src.getX();
-        start_y = src.getY();
-        end_x = dst.getX();
-        end_y = dst.getY();
-        old_theta = offset_theta;
+        if(geometry_valid) return;
+        geometry_valid = true;
 
         boolean draw_arc = true;
         double x0 = (double) src.getX();
@@ -461,6 +519,16 @@ abstract class Transition extends AutomatonComponent
             bounds.add(
                 (int) Math.round(cx + r * Math.cos(astart + alength)),
                 (int) Math.round(cy - r * Math.sin(astart + alength)));
+            // drawArc() works from rounded angles, which on a wide arc
+            // can put its ends a few pixels from those above
+            double end0 = Math.PI * arcstart / 180.0;
+            double end1 = Math.PI * (arcstart + arclength) / 180.0;
+            bounds.add(
+                (int) Math.round(cx + r * Math.cos(end0)),
+                (int) Math.round(cy - r * Math.sin(end0)));
+            bounds.add(
+                (int) Math.round(cx + r * Math.cos(end1)),
+                (int) Math.round(cy - r * Math.sin(end1)));
 
             if(normalizeDegrees(0 - arcstart) <= arclength) {
                 bounds.add(arcx + arcwidth, arcy + arcwidth / 2);
@@ -495,7 +563,6 @@ abstract class Transition extends AutomatonComponent
     }
 
     public void draw(Graphics g) {
-        label.setText(determineLabelText());
         computeCircle();
         GraphicsUtil.switchToWidth(g, 3);
         g.setColor(Color.blue);
@@ -523,17 +590,18 @@ abstract class Transition extends AutomatonComponent
 
     public void print(GroupedWriter fout) {
         super.print(fout);
-        fout.print("transits "); fout.printlnGroup(transits);
+        fout.print("transits "); fout.printlnGroup(transits.toString());
         fout.print("offset "); fout.printlnGroup(Double.toString(offset_theta));
     }
     public boolean setKey(String key, GroupedReader fin) throws IOException {
         if(key.equals("transits")) {
-            transits = fin.readGroup();
+            transits = new SymbolSet(fin.readGroup());
+            getAutomaton().invalidateTransitions();
             setLabelText();
             return true;
         } else if(key.equals("offset")) {
             String what = fin.readGroup();
-            offset_theta = Double.parseDouble(what);
+            setOffsetTheta(Double.parseDouble(what));
             return true;
         } else {
             return super.setKey(key, fin);
@@ -8,15 +8,25 @@ import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.swing.ButtonGroup;
+import javax.swing.JDialog;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JRadioButtonMenuItem;
+import javax.swing.SwingWorker;
 
 class TuringMachine extends DFA {
+    public static final long DEFAULT_MAX_JUMP
+        = Long.getLong("autosim.maxjump", 1000000000L).longValue();
+        // overridden by the autosim.maxjump system property
+    private static final long JUMP_DIALOG_DELAY = 250; // milliseconds
+
     private class MyTapeListener implements TapeListener {
         public void positionClicked(Tape tape, int position) {
             tape.setCursorPosition(position);
@@ -40,7 +50,7 @@ class TuringMachine extends DFA {
         }
     }
 
-    private class TMTransition extends DFA.DFATransition {
+    class TMTransition extends DFA.DFATransition {
         private int direction = 1;
         private char output = Alphabet.ELSE;
 
@@ -78,6 +88,17 @@ class TuringMachine extends DFA {
 
         public TMTransition(State src, State dst) {
             super(src, dst);
+            setLabelText(); // now that direction and output are set
+        }
+        public int getDirection() { return direction; }
+        public void setDirection(int value) {
+            direction = value;
+            setLabelText();
+        }
+        public char getOutput() { return output; }
+        public void setOutput(char value) {
+            output = value;
+            setLabelText();
         }
         public String determineLabelText() {
             String ret = super.determineLabelText() + ": ";
@@ -136,10 +157,10 @@ class TuringMachine extends DFA {
         public boolean setKey(String key, GroupedReader fin)
                 throws IOException {
             if(key.equals("direction")) {
-                direction = (fin.readGroup().startsWith("R") ? 1 : -1);
+                setDirection(fin.readGroup().startsWith("R") ? 1 : -1);
                 return true;
             } else if(key.equals("output")) {
-                output = fin.readGroup().charAt(0);
+                setOutput(fin.readGroup().charAt(0));
                 return true;
             } else {
                 return super.setKey(key, fin);
@@ -147,26 +168,41 @@ class TuringMachine extends DFA {
         }
     }
 
-    private class MySnapshot implements Snapshot {
-        private StateSet current;
-        private int head_pos;
-        private char head_char;
+    // The history records the cell under the head.
+    protected void restoreStep(StepHistory history) {
+        setCurrent(history.getLastStates());
+        Tape tape = getCanvas().getTape();
+        tape.setHeadPosition(history.getLastPosition());
+        history.restoreLastCells(tape);
+    }
+
+    // Headless counterpart to advance(), running on a compiled table.
+    // The machine accepts if it halts in a final state. It runs in
+    // chunks so that the budgets and cancellation are checked between
+    // them rather than on every step.
+    private class MySimulation extends Simulation {
+        private TuringTable table = new TuringTable(TuringMachine.this);
 
-        public MySnapshot() {
-            this.current   = getCurrent();
-            this.head_pos  = getCanvas().getTape().getHeadPosition();
-            this.head_char = getCanvas().getTape().read(this.head_pos);
-        }
-        public void restore() {
-            setCurrent(this.current);
-            getCanvas().getTape().setHeadPosition(this.head_pos);
-            getCanvas().getTape().write(this.head_pos, this.head_char);
+        public SimulationResult run(String input) {
+            startRun();
+            TuringTable.Execution exec = table.start(input);
+            while(!exec.isHalted()) {
+                long steps = exec.getSteps();
+                int status = checkLimits(steps);
+                if(status != 0) return new SimulationResult(status, steps);
+                exec.run(nextCheck(steps) - steps);
+            }
+            return new SimulationResult(exec.isAccepting(), exec.getSteps());
         }
     }
 
+    private long max_jump = DEFAULT_MAX_JUMP;
+
     public TuringMachine() {
         getAlphabet().add(Alphabet.BLANK);
     }
+    public long getMaxJump() { return max_jump; }
+    public void setMaxJump(long value) { max_jump = value; }
     public void setToolBoxTape(ToolBox toolbox, Tape tape) {
         toolbox.setPlayControlsVisible(true);
         tape.completeReset();
@@ -178,11 +214,14 @@ class TuringMachine extends DFA {
     public Transition createTransition(State src, State dst) {
         return new TMTransition(src, dst);
     }
+    public Simulation createSimulation() {
+        return new MySimulation();
+    }
 
     //
     // SIMULATION METHODS
     //
-    private class PlayThread extends Animation {
+    private class PlayAnimation extends Animation {
         int count = 0;
         Animation current = advance();
         boolean going = true;
@@ -204,12 +243,12 @@ class TuringMachine extends DFA {
             }
         }
     }
-    private PlayThread thread_going = null;
+    private PlayAnimation playing = null;
     public void doPlay() {
         if(getCurrent().size() == 0) if(!startPlay()) return;
-        if(thread_going == null) {
-            thread_going = new PlayThread();
-            thread_going.start();
+        if(playing == null) {
+            playing = new PlayAnimation();
+            playing.start();
         }
     }
     public void doStop() {
@@ -219,9 +258,9 @@ class TuringMachine extends DFA {
         getHistory().clear();
     }
     public void doPause() {
-        if(thread_going != null) {
-            thread_going.going = false;
-            thread_going = null;
+        if(playing != null) {
+            playing.going = false;
+            playing = null;
             setCurrent(getCurrent());
             Tape tape = getCanvas().getTape();
             tape.setHeadPosition(tape.getHeadPosition());
@@ -238,6 +277,138 @@ class TuringMachine extends DFA {
         getCanvas().getTape().reset();
         getHistory().clear();
     }
+    // Moves the run to the given step: back by undoing steps if the
+    // history still holds them, and otherwise by replaying on a compiled
+    // table, from the current step if the target lies ahead and from the
+    // latest checkpoint before it if not. Only the last steps replayed are
+    // recorded, as many as the history holds. Symbols typed onto the tape
+    // in mid-run are not in the history, so replays from before them
+    // will not see them.
+    //
+    // The replay runs on a worker thread while a modal dialog offers to
+    // cancel it, since a machine that never halts would otherwise hold
+    // the editor for as long as the target is far. Targets past the
+    // maximum jump are refused.
+    public void doJumpTo(long target) {
+        doPause();
+        StepHistory history = getHistory();
+        if(getCurrent().size() == 0 && history.isEmpty()) {
+            if(!startPlay()) return;
+        }
+        if(target < 0) target = 0;
+        if(target > max_jump) {
+            JOptionPane.showMessageDialog(null, "Steps past " + max_jump
+                + " cannot be jumped to.");
+            return;
+        }
+        if(target < history.getStep() && undoTo(target)) return;
+
+        Tape tape = getCanvas().getTape();
+        long from = history.getStep();
+        StateSet states;
+        TapeContents contents;
+        int head;
+        if(target >= from) {
+            states = getCurrent();
+            contents = tape.copyContents();
+            head = tape.getHeadPosition();
+        } else {
+            StepHistory.Checkpoint checkpoint = history.getCheckpoint(target);
+            if(checkpoint == null) return;
+            from = checkpoint.getStep();
+            states = checkpoint.getStates();
+            contents = checkpoint.getContents();
+            head = checkpoint.getPosition();
+            history.truncate(from);
+        }
+        Iterator<State> stateIter = states.iterator();
+        if(!stateIter.hasNext()) return;
+
+        TuringTable.Execution exec = new TuringTable(this)
+            .start(stateIter.next(), contents, head);
+        Replay replay = new Replay(exec, from, target);
+        JOptionPane pane = new JOptionPane("Replaying to step " + target + "...",
+            JOptionPane.INFORMATION_MESSAGE, JOptionPane.DEFAULT_OPTION,
+            null, new Object[] { "Cancel" });
+        replay.dialog = pane.createDialog(getCanvas(), "Jump");
+        replay.execute();
+        try {
+            try {
+                replay.get(JUMP_DIALOG_DELAY, TimeUnit.MILLISECONDS);
+            } catch(TimeoutException e) {
+                replay.dialog.setVisible(true); // until canceled or done()
+                replay.stopped = true;
+                replay.get();
+            }
+        } catch(ExecutionException e) {
+            // reported by done()
+        } catch(InterruptedException e) {
+            replay.stopped = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+    private class Replay extends SwingWorker<Object,Object> {
+        private TuringTable.Execution exec;
+        private long from;
+        private long target;
+        private JDialog dialog;
+        private volatile boolean stopped = false;
+
+        public Replay(TuringTable.Execution exec, long from, long target) {
+            this.exec = exec;
+            this.from = from;
+            this.target = target;
+        }
+
+        // The first step is recorded even if later ones are skipped,
+        // since it may be a checkpoint, such as the start of the run.
+        // Skipped steps run in chunks, so that cancelling takes effect
+        // promptly.
+        protected Object doInBackground() {
+            StepHistory history = getHistory();
+            long skip = target - from - 1 - StepHistory.CAPACITY;
+            while(history.getStep() < target && !exec.isHalted() && !stopped) {
+                if(skip > 0 && history.getStep() > from) {
+                    long count = exec.run(Math.min(skip, Simulation.CHECK_INTERVAL));
+                    history.skip(count);
+                    skip -= count;
+                } else {
+                    history.add(exec.getState(), exec.getHeadPosition(), exec.getTape());
+                    exec.run(1);
+                }
+            }
+            return null;
+        }
+        // A replay that failed leaves the canvas as it was. The steps
+        // it recorded do not lead up to what the canvas shows, so they
+        // are dropped.
+        protected void done() {
+            dialog.dispose();
+            StepHistory history = getHistory();
+            try {
+                get();
+            } catch(ExecutionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                history.clear();
+                JOptionPane.showMessageDialog(null,
+                    "Error during replay: " + cause.toString());
+                return;
+            } catch(InterruptedException e) {
+                return; // not reached, since the replay is done
+            }
+            StateSet current = new StateSet(TuringMachine.this);
+            if(exec.getState() != null) current.add(exec.getState());
+            setCurrent(current);
+            Tape tape = getCanvas().getTape();
+            tape.setContents(exec.getTape());
+            tape.setHeadPosition(exec.getHeadPosition());
+            if(history.getStep() < target) {
+                JOptionPane.showMessageDialog(null, (stopped && !exec.isHalted()
+                    ? "Stopped at step " : "The machine halts at step ")
+                    + history.getStep() + ".");
+            }
+        }
+    }
     private boolean startPlay() {
         StateSet states = getInitialStates();
         if(states.size() == 0) {
@@ -248,7 +419,8 @@ class TuringMachine extends DFA {
         return true;
     }
     private Animation advance() {
-        getHistory().add(new MySnapshot());
+        Tape tape = getCanvas().getTape();
+        getHistory().add(getCurrent(), tape.getHeadPosition(), tape);
 
         Iterator<State> stateIter = getCurrent().iterator();
         if(!stateIter.hasNext()) return Animation.getNull();
@@ -257,20 +429,17 @@ class TuringMachine extends DFA {
         TMTransition used = null;
         Animation head_move = null;
 
-        Tape tape = getCanvas().getTape();
         char c = tape.read(tape.getHeadPosition());
-        for(Iterator<Transition> it = getTransitions(); it.hasNext(); ) {
-            TMTransition trans = (TMTransition) it.next();
-            if(trans.getSource() == current) {
-                if(trans.transitsOn(c)) {
-                    used = trans;
-                    next = trans.getDest();
-                    break;
-                }
-                if(trans.transitsOn(Alphabet.ELSE)) {
-                    used = trans;
-                    next = trans.getDest();
-                }
+        for(Transition other : current.getOutgoing()) {
+            TMTransition trans = (TMTransition) other;
+            if(trans.transitsOn(c)) {
+                used = trans;
+                next = trans.getDest();
+                break;
+            }
+            if(trans.transitsOn(Alphabet.ELSE)) {
+                used = trans;
+                next = trans.getDest();
             }
         }
 
@@ -0,0 +1,168 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+// A Turing machine compiled into a table mapping (state, symbol) to
+// (next state, symbol to write, head movement), for running machines
+// far faster than the animated simulation. Columns are laid out as in
+// DFATable, with the last column for characters outside the alphabet;
+// ELSE transitions are resolved at compile time.
+class TuringTable {
+    public static final int HALT = -1;
+
+    // The state of one run of the machine.
+    public static class Execution {
+        private TuringTable table;
+        private TapeContents tape;
+        private int head = 0;
+        private int state;
+        private long steps = 0;
+
+        private Execution(TuringTable table, TapeContents tape) {
+            this.table = table;
+            this.tape = tape;
+            this.state = table.initial;
+        }
+
+        public TapeContents getTape() { return tape; }
+        public int getHeadPosition() { return head; }
+        public long getSteps() { return steps; }
+        public boolean isHalted() {
+            return state == HALT || table.next[state + table.getColumn(tape.get(head))] == HALT;
+        }
+        public boolean isAccepting() {
+            return state != HALT && table.accepting[state / table.width];
+        }
+        public State getState() {
+            return state == HALT ? null : table.states[state / table.width];
+        }
+
+        // Runs until the machine halts or max_steps more transitions
+        // have been taken, and returns the number taken.
+        public long run(long max_steps) {
+            if(state == HALT) return 0;
+            int[] next = table.next;
+            char[] write = table.write;
+            byte[] move = table.move;
+            Alphabet columns = table.columns;
+            int other = table.other;
+            TapeContents tape = this.tape;
+            int head = this.head;
+            int state = this.state;
+
+            long count = 0;
+            while(count < max_steps) {
+                char c = tape.get(head);
+                int col = columns.indexOf(c);
+                int k = state + (col < 0 ? other : col);
+                int dst = next[k];
+                if(dst == HALT) break;
+                char w = write[k];
+                if(w != Alphabet.ELSE && w != c) tape.set(head, w);
+                head += move[k];
+                state = dst;
+                ++count;
+            }
+
+            this.head = head;
+            this.state = state;
+            this.steps += count;
+            return count;
+        }
+    }
+
+    private State[] states;
+    private boolean[] accepting;
+    private Alphabet columns; // character -> column, or -1 for other
+    private int other;       // column for characters outside the alphabet
+    private int width;       // number of columns
+    private int[] next;      // (row * width + column) -> row * width, or HALT
+    private char[] write;    // (row * width + column) -> symbol, or ELSE
+    private byte[] move;     // (row * width + column) -> -1 or 1
+    private int initial;     // row * width of initial state, or HALT
+
+    public TuringTable(TuringMachine automaton) {
+        // assign rows to states
+        IdentityHashMap<State,Integer> rows = new IdentityHashMap<State,Integer>();
+        int count = 0;
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            rows.put(it.next(), Integer.valueOf(count++));
+        }
+        states = new State[count];
+        accepting = new boolean[count];
+        initial = HALT;
+
+        // assign columns to symbols
+        Alphabet dict = automaton.getAlphabet();
+        StringBuffer syms = new StringBuffer();
+        for(int i = 0; i < dict.size(); i++) {
+            char c = dict.charAt(i);
+            if(c != Alphabet.ELSE && c != Alphabet.EPSILON) syms.append(c);
+        }
+        char[] symbols = syms.toString().toCharArray();
+        width = symbols.length + 1;
+        other = symbols.length;
+        columns = new Alphabet(new String(symbols));
+
+        // fill table; a transition on the exact symbol takes priority
+        // over an ELSE transition, as in TuringMachine.advance()
+        next = new int[count * width];
+        write = new char[count * width];
+        move = new byte[count * width];
+        boolean[] exact = new boolean[count * width];
+        for(int i = 0; i < next.length; i++) next[i] = HALT;
+        for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); ) {
+            TuringMachine.TMTransition trans = (TuringMachine.TMTransition) it.next();
+            int src = rows.get(trans.getSource()).intValue();
+            int dst = rows.get(trans.getDest()).intValue() * width;
+            boolean on_else = trans.transitsOn(Alphabet.ELSE);
+            for(int col = 0; col < width; col++) {
+                int k = src * width + col;
+                boolean on_exact = col != other && trans.transitsOn(symbols[col]);
+                if(exact[k] || !(on_exact || on_else)) continue;
+                exact[k] = on_exact;
+                next[k] = dst;
+                move[k] = (byte) trans.getDirection();
+                write[k] = trans.getOutput();
+            }
+        }
+
+        for(Iterator<State> it = automaton.getStates(); it.hasNext(); ) {
+            State state = it.next();
+            int row = rows.get(state).intValue();
+            states[row] = state;
+            accepting[row] = state.isFinal();
+            if(initial == HALT && state.isInitial()) initial = row * width;
+        }
+    }
+
+    private int getColumn(char c) {
+        int col = columns.indexOf(c);
+        return col < 0 ? other : col;
+    }
+
+    // Starts a run with the given input written from position 0.
+    public Execution start(String input) {
+        TapeContents tape = new TapeContents();
+        for(int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            tape.set(i, c == ' ' ? Alphabet.BLANK : c);
+        }
+        return new Execution(this, tape);
+    }
+    // Starts a run from a configuration reached earlier, such as one in
+    // a StepHistory. The run writes to the contents given.
+    public Execution start(State state, TapeContents tape, int head) {
+        Execution ret = new Execution(this, tape);
+        ret.state = HALT;
+        for(int row = 0; row < states.length; row++) {
+            if(states[row] == state) ret.state = row * width;
+        }
+        ret.head = head;
+        return ret;
+    }
+}
@@ -0,0 +1,50 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+// Saved automata of each type read back by Automaton.read(), with
+// their transitions between the same states.
+public class AutomatonFileTest {
+    @Test
+    public void automatonRoundTrip() throws IOException {
+        Generator generator = new Generator(3);
+        generator.setAlphabet("a{}\\");
+        for(String type : new String[] { "dfa", "nfa", "dpda", "turing" }) {
+            Automaton automaton = generator.create(type, 12);
+            String saved = save(automaton);
+            Automaton read = Automaton.read(new GroupedReader(new StringReader(saved)));
+            assertEquals(type, saved, save(read));
+        }
+    }
+
+    // A removed state leaves a gap among the ids; the file still names
+    // each transition's endpoints correctly.
+    @Test
+    public void roundTripAfterRemovingState() throws IOException {
+        Generator generator = new Generator(4);
+        for(String type : new String[] { "dfa", "nfa", "dpda", "turing" }) {
+            Automaton automaton = generator.create(type, 12);
+            automaton.removeState(automaton.getState(5));
+            String saved = save(automaton);
+            Automaton read = Automaton.read(new GroupedReader(new StringReader(saved)));
+            assertEquals(type, saved, save(read));
+        }
+    }
+
+    private static String save(Automaton automaton) {
+        StringWriter ret = new StringWriter();
+        GroupedWriter fout = new GroupedWriter(ret);
+        automaton.print(fout);
+        fout.close();
+        return ret.toString();
+    }
+}
@@ -0,0 +1,91 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// The binary format's simulations against those of the automata it was
+// written from.
+public class BinaryAutomatonTest {
+    private static final int AUTOMATA = 10;
+    private static final int INPUTS = 40;
+    private static final long STEP_BUDGET = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void dfaMatches() throws IOException {
+        check("dfa", BinaryAutomaton.TYPE_DFA);
+    }
+    @Test
+    public void nfaMatches() throws IOException {
+        check("nfa", BinaryAutomaton.TYPE_NFA);
+    }
+    @Test
+    public void dpdaMatches() throws IOException {
+        check("dpda", BinaryAutomaton.TYPE_DPDA);
+    }
+    @Test
+    public void turingMachineMatches() throws IOException {
+        check("turing", BinaryAutomaton.TYPE_TURING);
+    }
+
+    private void check(String type, int binary_type) throws IOException {
+        for(int seed = 0; seed < AUTOMATA; seed++) {
+            Generator generator = new Generator(seed);
+            Automaton automaton = generator.create(type, 2 + 3 * seed);
+            if(automaton instanceof TuringMachine) removeSome(automaton, seed);
+
+            File file = folder.newFile(type + seed + ".bin");
+            BinaryAutomaton.write(automaton, file);
+            assertTrue(BinaryAutomaton.isBinary(file));
+            BinaryAutomaton binary = BinaryAutomaton.open(file);
+            assertEquals(binary_type, binary.getType());
+            Automaton copy = binary.toAutomaton();
+
+            Simulation expected = createSimulation(automaton);
+            Simulation actual = createSimulation(binary.createSimulation());
+            Simulation copied = createSimulation(copy);
+            for(int i = 0; i < INPUTS; i++) {
+                String input = generator.createInput(i);
+                String want = expected.run(input).toString();
+                assertEquals(type + " " + seed + ", input " + input,
+                    want, actual.run(input).toString());
+                assertEquals(type + " " + seed + ", input " + input,
+                    want, copied.run(input).toString());
+            }
+        }
+    }
+
+    // Generated Turing machines never halt, so some transitions are
+    // removed to let runs end.
+    private static void removeSome(Automaton automaton, int seed) {
+        ArrayList<Transition> remove = new ArrayList<Transition>();
+        int i = 0;
+        for(Iterator<Transition> it = automaton.getTransitions(); it.hasNext(); i++) {
+            Transition transition = it.next();
+            if((i + seed) % 4 == 0) remove.add(transition);
+        }
+        for(Transition transition : remove) automaton.removeTransition(transition);
+    }
+
+    private static Simulation createSimulation(Automaton automaton) {
+        return createSimulation(automaton.createSimulation());
+    }
+    private static Simulation createSimulation(Simulation simulation) {
+        simulation.setStepBudget(STEP_BUDGET);
+        return simulation;
+    }
+}
@@ -0,0 +1,34 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// DFAMinimization on the tables of random NFAs: the minimal table is
+// no larger, cannot be shrunk further, and accepts the same inputs.
+public class DFAMinimizationTest {
+    private static final int AUTOMATA = 40;
+    private static final int INPUTS = 50;
+
+    @Test
+    public void minimizationKeepsLanguage() {
+        for(int seed = 0; seed < AUTOMATA; seed++) {
+            Generator generator = ReferenceRuns.createGenerator(seed);
+            NFA nfa = generator.createNFA(1 + seed % 13);
+            DFATable table = new SubsetConstruction(nfa).run();
+            DFATable minimal = DFAMinimization.minimize(table);
+            assertTrue(minimal.getRowCount() <= table.getRowCount());
+            assertEquals("minimizing again removes nothing", minimal.getRowCount(),
+                DFAMinimization.minimize(minimal).getRowCount());
+            for(int i = 0; i < INPUTS; i++) {
+                String input = ReferenceRuns.createInput(generator, i);
+                assertEquals("seed " + seed + ", input " + input,
+                    ReferenceRuns.accepts(nfa, input), minimal.accepts(input));
+            }
+        }
+    }
+}
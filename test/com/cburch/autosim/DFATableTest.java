@@ -0,0 +1,28 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// DFATable against StateSet.step() on random DFAs and inputs.
+public class DFATableTest {
+    private static final int AUTOMATA = 40;
+    private static final int INPUTS = 50;
+
+    @Test
+    public void tableMatchesDFA() {
+        for(int seed = 0; seed < AUTOMATA; seed++) {
+            Generator generator = new Generator(seed);
+            DFA dfa = generator.createDFA(1 + seed % 17);
+            DFATable table = new DFATable(dfa);
+            for(int i = 0; i < INPUTS; i++) {
+                String input = ReferenceRuns.createInput(generator, i);
+                assertEquals("seed " + seed + ", input " + input,
+                    ReferenceRuns.accepts(dfa, input), table.accepts(input));
+            }
+        }
+    }
+}
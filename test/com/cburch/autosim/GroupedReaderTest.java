@@ -0,0 +1,85 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+// GroupedReader on text written out by hand, in the format that
+// GroupedWriter produces.
+public class GroupedReaderTest {
+    private static final String TEXT
+        = "header\n"
+        + "top {\n"
+        + "\tplain {value}\n"
+        + "\tempty {}\n"
+        + "\tescaped {\\{braces\\} and back\\\\slash}\n"
+        + "\ttrailing {end\\\\}\n"
+        + "\tnested {\n"
+        + "\t\tinner {\\{deep\\}}\n"
+        + "\t}\n"
+        + "}\n";
+
+    @Test
+    public void readsNestedGroups() throws IOException {
+        checkText(TEXT);
+    }
+
+    @Test
+    public void readsWindowsLineEnds() throws IOException {
+        checkText(TEXT.replace("\n", "\r\n"));
+    }
+
+    // Values long enough to cross the reader's buffer boundaries
+    // mid-token, and escapes split across them.
+    @Test
+    public void readsLongInput() throws IOException {
+        StringBuffer text = new StringBuffer();
+        StringBuffer value = new StringBuffer();
+        for(int i = 0; i < 5000; i++) {
+            text.append(i % 7 == 0 ? "\\{\\\\\\}" : "x");
+            value.append(i % 7 == 0 ? "{\\}" : "x");
+        }
+        StringBuffer all = new StringBuffer();
+        for(int i = 0; i < 100; i++) {
+            all.append("k {").append(text).append(i).append("}\n");
+        }
+
+        GroupedReader fin = new GroupedReader(new StringReader(all.toString()));
+        for(int i = 0; i < 100; i++) {
+            assertEquals("k", fin.readKey());
+            assertEquals(value.toString() + i, fin.readGroup());
+        }
+        assertTrue(fin.atFileEnd());
+    }
+
+    private static void checkText(String text) throws IOException {
+        GroupedReader fin = new GroupedReader(new StringReader(text));
+        assertEquals("header", fin.readLine());
+        assertEquals("top", fin.readKey());
+        fin.beginGroup();
+        assertEquals("plain", fin.readKey());
+        assertEquals("value", fin.readGroup());
+        assertEquals("empty", fin.readKey());
+        assertEquals("", fin.readGroup());
+        assertEquals("escaped", fin.readKey());
+        assertEquals("{braces} and back\\slash", fin.readGroup());
+        assertEquals("trailing", fin.readKey());
+        assertEquals("end\\", fin.readGroup());
+        assertEquals("nested", fin.readKey());
+        fin.beginGroup();
+        assertEquals("inner", fin.readKey());
+        assertEquals("{deep}", fin.readGroup());
+        assertTrue(fin.atGroupEnd());
+        fin.endGroup();
+        assertTrue(fin.atGroupEnd());
+        fin.endGroup();
+        assertTrue(fin.atFileEnd());
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+// GroupedWriter's output, with its escapes and buffering, read back by
+// GroupedReader.
+public class GroupedWriterTest {
+    private static final String[] VALUES = {
+        "plain",
+        "",
+        "{braces}",
+        "}{",
+        "back\\slash",
+        "trailing\\",
+        "\\{\\}",
+        "two\nlines", // a final newline cannot be told from the group's end
+        "\u0190 and else *",
+    };
+
+    @Test
+    public void escapedGroupsRoundTrip() throws IOException {
+        StringWriter text = new StringWriter();
+        GroupedWriter fout = new GroupedWriter(text);
+        fout.println("header");
+        fout.print("top ");
+        fout.beginGroup();
+        fout.println();
+        for(int i = 0; i < VALUES.length; i++) {
+            fout.print("key" + i + " ");
+            fout.printlnGroup(VALUES[i]);
+        }
+        fout.print("nested ");
+        fout.beginGroup();
+        fout.println();
+        fout.print("inner ");
+        fout.printlnGroup("{deep}");
+        fout.endGroup();
+        fout.println();
+        fout.endGroup();
+        fout.println();
+        fout.close();
+
+        GroupedReader fin = new GroupedReader(new StringReader(text.toString()));
+        assertEquals("header", fin.readLine());
+        assertEquals("top", fin.readKey());
+        fin.beginGroup();
+        for(int i = 0; i < VALUES.length; i++) {
+            assertEquals("key" + i, fin.readKey());
+            assertEquals(VALUES[i], fin.readGroup());
+        }
+        assertEquals("nested", fin.readKey());
+        fin.beginGroup();
+        assertEquals("inner", fin.readKey());
+        assertEquals("{deep}", fin.readGroup());
+        assertTrue(fin.atGroupEnd());
+        fin.endGroup();
+        assertTrue(fin.atGroupEnd());
+        fin.endGroup();
+        assertTrue(fin.atFileEnd());
+    }
+
+    // Writes long enough to flush the writer's buffer several times.
+    @Test
+    public void longOutputRoundTrip() throws IOException {
+        StringWriter text = new StringWriter();
+        GroupedWriter fout = new GroupedWriter(text);
+        StringBuffer value = new StringBuffer();
+        for(int i = 0; i < 5000; i++) value.append(i % 7 == 0 ? "{\\}" : "x");
+        for(int i = 0; i < 100; i++) {
+            fout.print("k ");
+            fout.printlnGroup(value.toString() + i);
+        }
+        fout.close();
+
+        GroupedReader fin = new GroupedReader(new StringReader(text.toString()));
+        for(int i = 0; i < 100; i++) {
+            assertEquals("k", fin.readKey());
+            assertEquals(value.toString() + i, fin.readGroup());
+        }
+        assertTrue(fin.atFileEnd());
+    }
+}
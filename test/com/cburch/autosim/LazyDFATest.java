@@ -0,0 +1,34 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// LazyDFA against StateSet.step() on random NFAs and inputs, with room
+// for every subset it builds and with a budget that keeps flushing it.
+public class LazyDFATest {
+    private static final int AUTOMATA = 40;
+    private static final int INPUTS = 50;
+
+    @Test
+    public void lazyDFAMatchesNFA() {
+        for(int seed = 0; seed < AUTOMATA; seed++) {
+            Generator generator = ReferenceRuns.createGenerator(seed);
+            NFA nfa = generator.createNFA(1 + seed % 13);
+            LazyDFA lazy = new LazyDFA(nfa);
+            // a budget of a few states forces the cache to flush
+            LazyDFA small = new LazyDFA(new NFATable(nfa), 1);
+            for(int i = 0; i < INPUTS; i++) {
+                String input = ReferenceRuns.createInput(generator, i);
+                boolean expected = ReferenceRuns.accepts(nfa, input);
+                assertEquals("seed " + seed + ", input " + input,
+                    expected, lazy.accepts(input));
+                assertEquals("seed " + seed + ", input " + input,
+                    expected, small.accepts(input));
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+// The reference that the compiled simulators are checked against:
+// StateSet.step(), which follows the transitions one state at a time.
+class ReferenceRuns {
+    private ReferenceRuns() { }
+
+    // The states reached from the initial ones, with EPSILON closure
+    // after each symbol.
+    static boolean accepts(Automaton automaton, String input) {
+        StateSet cur = automaton.getInitialStates().step(Alphabet.EPSILON);
+        for(int i = 0; i < input.length() && cur.size() > 0; i++) {
+            cur = cur.step(input.charAt(i));
+        }
+        return cur.containsFinal();
+    }
+
+    // Small alphabets and frequent EPSILON transitions give NFAs whose
+    // runs reach many states at once.
+    static Generator createGenerator(long seed) {
+        Generator ret = new Generator(seed);
+        ret.setAlphabet("abc");
+        ret.setEpsilonDensity(0.5);
+        return ret;
+    }
+
+    // Inputs include a symbol outside the alphabet, which only ELSE
+    // transitions read.
+    static String createInput(Generator generator, int length) {
+        String ret = generator.createInput(length);
+        return length > 2 ? ret.substring(0, length / 2) + 'z'
+            + ret.substring(length / 2 + 1) : ret;
+    }
+}
@@ -0,0 +1,52 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// The headless NFA simulation against StateSet.step(), and the step
+// budget and cancellation that bound its runs.
+public class SimulationTest {
+    private static final int AUTOMATA = 40;
+    private static final int INPUTS = 50;
+
+    @Test
+    public void simulationMatchesNFA() {
+        for(int seed = 0; seed < AUTOMATA; seed++) {
+            Generator generator = ReferenceRuns.createGenerator(seed);
+            NFA nfa = generator.createNFA(1 + seed % 13);
+            Simulation simulation = nfa.createSimulation();
+            for(int i = 0; i < INPUTS; i++) {
+                String input = ReferenceRuns.createInput(generator, i);
+                assertEquals("seed " + seed + ", input " + input,
+                    ReferenceRuns.accepts(nfa, input),
+                    simulation.run(input).isAccepted());
+            }
+        }
+    }
+
+    @Test
+    public void simulationStopsAtBudget() {
+        // Every state has transitions on every symbol of the alphabet,
+        // so no run over the alphabet dies before its input ends.
+        Generator generator = ReferenceRuns.createGenerator(1);
+        NFA nfa = generator.createNFA(50);
+        Simulation simulation = nfa.createSimulation();
+        String input = generator.createInput(100);
+        SimulationResult whole = simulation.run(input);
+        assertTrue(whole.isHalted());
+        assertEquals(input.length(), whole.getSteps());
+
+        simulation.setStepBudget(10);
+        SimulationResult result = simulation.run(input);
+        assertEquals(SimulationResult.BUDGET_EXHAUSTED, result.getStatus());
+        assertEquals(10, result.getSteps());
+
+        simulation.cancel();
+        assertEquals(SimulationResult.CANCELLED, simulation.run(input).getStatus());
+    }
+}
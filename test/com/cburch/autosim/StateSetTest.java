@@ -0,0 +1,56 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+// Sets that outlive a state: the step history keeps the sets of earlier
+// steps, which may name a state deleted since.
+public class StateSetTest {
+    @Test
+    public void backStepAfterRemovingState() {
+        NFA nfa = new NFA();
+        nfa.getAlphabet().set("a");
+        State kept = nfa.addState();
+        State removed = nfa.addState();
+        removed.setFinal(true);
+
+        StateSet both = new StateSet(nfa);
+        both.add(kept);
+        both.add(removed);
+        StepHistory history = nfa.getHistory();
+        history.add(both, 0, new TapeContents());
+        assertTrue(history.getLastStates().containsFinal());
+
+        nfa.removeState(removed);
+        StateSet last = history.getLastStates();
+        assertEquals(1, count(last));
+        assertEquals(kept, last.iterator().next());
+        assertFalse(last.containsFinal());
+        assertEquals(0, last.step('a').size());
+        assertEquals(0, ((StateSet) last.advance('a')[0]).size());
+
+        StateSet marked = history.getCheckpoint(0).getStates();
+        assertEquals(1, count(marked));
+        assertFalse(marked.containsFinal());
+        history.removeLast();
+        assertTrue(history.isEmpty());
+    }
+
+    private static int count(StateSet set) {
+        int ret = 0;
+        for(Iterator<State> it = set.iterator(); it.hasNext(); ) {
+            assertNotNull(it.next());
+            ++ret;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,129 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+// Recording Turing machine runs in a StepHistory, then undoing steps
+// and rebuilding earlier ones from checkpoints, compared against
+// replaying the run from its start.
+public class StepHistoryTest {
+    @Test
+    public void backStepRestoresEachStep() {
+        for(int seed = 0; seed < 10; seed++) {
+            Generator generator = new Generator(seed);
+            TuringMachine machine = generator.createTuringMachine(3 + seed);
+            String input = generator.createInput(seed);
+            TuringTable table = new TuringTable(machine);
+            StepHistory history = new StepHistory(machine, 0, 1);
+
+            // keep every step's tape, to compare with what is undone
+            ArrayList<TapeContents> tapes = new ArrayList<TapeContents>();
+            ArrayList<Integer> heads = new ArrayList<Integer>();
+            TuringTable.Execution exec = table.start(input);
+            int steps = 500;
+            for(int i = 0; i < steps; i++) {
+                tapes.add(new TapeContents(exec.getTape()));
+                heads.add(Integer.valueOf(exec.getHeadPosition()));
+                history.add(exec.getState(), exec.getHeadPosition(), exec.getTape());
+                exec.run(1);
+            }
+
+            Tape tape = new Tape();
+            tape.setContents(new TapeContents(exec.getTape()));
+            for(int i = steps - 1; i >= 0; i--) {
+                assertEquals(heads.get(i).intValue(), history.getLastPosition());
+                history.restoreLastCells(tape);
+                history.removeLast();
+                assertEquals(i, history.getStep());
+                assertSameCells("seed " + seed + ", step " + i, tapes.get(i),
+                    tape.getContents());
+            }
+            assertTrue(history.isEmpty());
+        }
+    }
+
+    @Test
+    public void checkpointsRebuildEarlierSteps() {
+        for(int seed = 0; seed < 6; seed++) {
+            Generator generator = new Generator(seed);
+            TuringMachine machine = generator.createTuringMachine(2 + seed);
+            String input = generator.createInput(2 * seed);
+            TuringTable table = new TuringTable(machine);
+            StepHistory history = new StepHistory(machine, 0, 1);
+
+            // long enough for the ring to wrap and checkpoints to thin
+            long steps = 300000;
+            TuringTable.Execution exec = table.start(input);
+            for(long i = 0; i < steps; i++) {
+                history.add(exec.getState(), exec.getHeadPosition(), exec.getTape());
+                exec.run(1);
+            }
+            assertEquals(StepHistory.CAPACITY, history.size());
+
+            for(long target = 0; target < steps; target += steps / 23) {
+                StepHistory.Checkpoint checkpoint = history.getCheckpoint(target);
+                assertNotNull(checkpoint);
+                assertTrue(checkpoint.getStep() <= target);
+                assertTrue("checkpoints cover the run",
+                    target - checkpoint.getStep() <= steps / 16);
+                assertMatches(table, input, checkpoint);
+            }
+        }
+    }
+
+    // A jump records the first step, skips ahead and then records as
+    // many steps as the ring holds, as TuringMachine.doJumpTo() does.
+    @Test
+    public void checkpointsSurviveSkips() {
+        for(int seed = 0; seed < 6; seed++) {
+            Generator generator = new Generator(seed);
+            TuringMachine machine = generator.createTuringMachine(2 + seed);
+            String input = generator.createInput(seed);
+            TuringTable table = new TuringTable(machine);
+            StepHistory history = new StepHistory(machine, 0, 1);
+
+            long target = 500000;
+            TuringTable.Execution exec = table.start(input);
+            history.add(exec.getState(), exec.getHeadPosition(), exec.getTape());
+            exec.run(1);
+            history.skip(exec.run(target - 1 - StepHistory.CAPACITY));
+            while(history.getStep() < target) {
+                history.add(exec.getState(), exec.getHeadPosition(), exec.getTape());
+                exec.run(1);
+            }
+
+            for(long step = target - StepHistory.CAPACITY; step < target; step += 4099) {
+                StepHistory.Checkpoint checkpoint = history.getCheckpoint(step);
+                assertNotNull(checkpoint);
+                assertMatches(table, input, checkpoint);
+            }
+            assertEquals(0, history.getCheckpoint(target - StepHistory.CAPACITY - 1).getStep());
+        }
+    }
+
+    private static void assertMatches(TuringTable table, String input,
+            StepHistory.Checkpoint checkpoint) {
+        TuringTable.Execution replay = table.start(input);
+        replay.run(checkpoint.getStep());
+        String where = "step " + checkpoint.getStep();
+        assertEquals(where, replay.getHeadPosition(), checkpoint.getPosition());
+        assertTrue(where, checkpoint.getStates().contains(replay.getState()));
+        assertSameCells(where, replay.getTape(), checkpoint.getContents());
+    }
+    private static void assertSameCells(String where, TapeContents expected,
+            TapeContents actual) {
+        int first = Math.min(expected.getMinimumPosition(), actual.getMinimumPosition());
+        int last = Math.max(expected.getMaximumPosition(), actual.getMaximumPosition());
+        for(int i = first - 1; i <= last + 1; i++) {
+            assertEquals(where + ", cell " + i, expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/* Copyright (c) 2006, Carl Burch. License information is located in the
+ * com.cburch.autosim.Main source code and at www.cburch.com/proj/autosim/. */
+
+package com.cburch.autosim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// SubsetConstruction's table, and the DFA that convert() builds from it,
+// against StateSet.step() on random NFAs and inputs.
+public class SubsetConstructionTest {
+    private static final int AUTOMATA = 40;
+    private static final int INPUTS = 50;
+
+    @Test
+    public void subsetConstructionMatchesNFA() {
+        for(int seed = 0; seed < AUTOMATA; seed++) {
+            Generator generator = ReferenceRuns.createGenerator(seed);
+            NFA nfa = generator.createNFA(1 + seed % 13);
+            DFATable table = new SubsetConstruction(nfa).run();
+            DFA converted = SubsetConstruction.convert(nfa);
+            for(int i = 0; i < INPUTS; i++) {
+                String input = ReferenceRuns.createInput(generator, i);
+                boolean expected = ReferenceRuns.accepts(nfa, input);
+                assertEquals("seed " + seed + ", input " + input,
+                    expected, table.accepts(input));
+                assertEquals("seed " + seed + ", input " + input,
+                    expected, ReferenceRuns.accepts(converted, input));
+            }
+        }
+    }
+}